@@ -0,0 +1,64 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk 
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+import me.champeau.gradle.JMHPluginExtension
+import org.jetbrains.kotlin.gradle.tasks.KotlinCompile
+
+plugins {
+    kotlin("jvm").version("1.3.21")
+    id("me.champeau.gradle.jmh").version("0.4.8")
+    java
+}
+
+group = "cc.hawkbot.regnum"
+version = rootProject.version
+
+repositories {
+    mavenCentral()
+    jcenter()
+}
+
+dependencies {
+
+    // Regnum
+    jmh(project(":shared"))
+    jmh(project(":client"))
+    jmh(project(":server"))
+
+    implementation(kotlin("stdlib-jdk8"))
+}
+
+configure<JMHPluginExtension> {
+    jmhVersion = "1.21"
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+    // Run a subset using -Pjmh.include=<regex>
+    if (project.hasProperty("jmh.include")) {
+        include = listOf(project.property("jmh.include") as String)
+    }
+}
+
+configure<JavaPluginConvention> {
+    sourceCompatibility = JavaVersion.VERSION_12
+}
+tasks.withType<KotlinCompile> {
+    kotlinOptions.jvmTarget = "1.8"
+}
@@ -0,0 +1,104 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.benchmarks;
+
+import cc.hawkbot.regnum.client.event.EventSubscriber;
+import cc.hawkbot.regnum.client.event.impl.AbstractEventManager;
+import cc.hawkbot.regnum.client.event.impl.AnnotatedEventManger;
+import cc.hawkbot.regnum.client.event.impl.EventListener;
+import cc.hawkbot.regnum.client.event.impl.InterfacedEventManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fire throughput of the client event managers across listener counts.
+ * Listeners run on the firing thread, see {@link DirectExecutorService}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventManagerBenchmark {
+
+    @Param({"ANNOTATED", "INTERFACED"})
+    public String manager;
+
+    @Param({"1", "10", "100"})
+    public int listeners;
+
+    private AbstractEventManager eventManager;
+    private final ChildEvent event = new ChildEvent();
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        var executor = new DirectExecutorService();
+        if (manager.equals("ANNOTATED")) {
+            eventManager = new AnnotatedEventManger(executor);
+            for (var i = 0; i < listeners; i++) {
+                eventManager.register(new AnnotatedListener(blackhole));
+            }
+        } else {
+            eventManager = new InterfacedEventManager(executor);
+            for (var i = 0; i < listeners; i++) {
+                eventManager.register((EventListener) blackhole::consume);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        eventManager.getExecutor().shutdown();
+    }
+
+    @Benchmark
+    public void fire() {
+        eventManager.fireEvent(event);
+    }
+
+    static class ParentEvent {
+    }
+
+    static class ChildEvent extends ParentEvent {
+    }
+
+    static class AnnotatedListener {
+
+        private final Blackhole blackhole;
+
+        AnnotatedListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        // Subscribes to the super class so the type hierarchy gets resolved
+        @EventSubscriber
+        public void onEvent(ParentEvent event) {
+            blackhole.consume(event);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.benchmarks;
+
+import cc.hawkbot.regnum.waiter.EventWaiter;
+import cc.hawkbot.regnum.waiter.impl.DefaultEventWaiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures registering waits on the {@link DefaultEventWaiter} and completing, cancelling or timing them out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventWaiterBenchmark {
+
+    private DefaultEventWaiter waiter;
+    private final Event event = new Event(42);
+
+    @Setup
+    public void setup() {
+        waiter = new DefaultEventWaiter();
+    }
+
+    @TearDown
+    public void tearDown() {
+        waiter.close();
+    }
+
+    @Benchmark
+    public Object complete() {
+        var future = waiter.waitFor(Event.class, it -> it.id == 42, 1, TimeUnit.MINUTES);
+        waiter.dispatch(event);
+        return future;
+    }
+
+    @Benchmark
+    public boolean cancel() {
+        return waiter.waitFor(Event.class, it -> it.id == 42, 1, TimeUnit.MINUTES).toCompletableFuture().cancel(false);
+    }
+
+    /**
+     * Registers waits which time out after a millisecond on the timer thread, measures the registration cost while
+     * the timer is expiring waits concurrently.
+     */
+    @Benchmark
+    public CompletionStage<Event> timeout() {
+        return waiter.waitFor(Event.class, it -> false, 1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the amount of pending waits.
+     *
+     * @return the amount of pending waits
+     * @see EventWaiter#pendingWaits()
+     */
+    @Benchmark
+    public long pendingWaits() {
+        return waiter.pendingWaits();
+    }
+
+    static class Event {
+
+        private final int id;
+
+        Event(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.benchmarks;
+
+import cc.hawkbot.regnum.client.event.impl.EventListener;
+import cc.hawkbot.regnum.client.event.impl.InterfacedEventManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the dispatch modes of {@link InterfacedEventManager}.
+ * <p>
+ * Listeners are executed on the firing thread so the benchmark measures the cost of submitting and running the
+ * tasks without thread hand-off noise.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InterfacedEventManagerBenchmark {
+
+    @Param({"1", "10", "30"})
+    public int listeners;
+
+    @Param({"PER_LISTENER", "BATCHED"})
+    public InterfacedEventManager.DispatchMode mode;
+
+    private InterfacedEventManager manager;
+    private final Object event = new Object();
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        manager = new InterfacedEventManager(new DirectExecutorService(), mode);
+        for (var i = 0; i < listeners; i++) {
+            manager.register((EventListener) blackhole::consume);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.getExecutor().shutdown();
+    }
+
+    @Benchmark
+    public void fire() {
+        manager.fireEvent(event);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.benchmarks;
+
+import cc.hawkbot.regnum.entities.Payload;
+import cc.hawkbot.regnum.entities.packets.HeartBeatPacket;
+import cc.hawkbot.regnum.entities.packets.MetricsPacket;
+import cc.hawkbot.regnum.entities.packets.Packet;
+import cc.hawkbot.regnum.net.PacketHandler;
+import cc.hawkbot.regnum.net.PacketProcessor;
+import kotlin.jvm.JvmClassMappingKt;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PacketProcessor#processMessage(String)} for packets with and without a registered handler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PacketProcessorBenchmark {
+
+    @Param({"1", "2"})
+    public int version;
+
+    private PacketProcessor processor;
+    private String handled;
+    private String unhandled;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        processor = new PacketProcessor();
+        processor.registerPackets(new BlackholeHandler<>(HeartBeatPacket.IDENTIFIER, HeartBeatPacket.class, blackhole));
+        handled = Payload.of(new HeartBeatPacket(42), HeartBeatPacket.IDENTIFIER).toJson(version);
+        unhandled = Payload.of(new MetricsPacket(1, 2, 3, 4, 5, 6, 7, 8), MetricsPacket.IDENTIFIER).toJson(version);
+    }
+
+    @Benchmark
+    public void handled() {
+        processor.processMessage(handled);
+    }
+
+    @Benchmark
+    public void unhandled() {
+        processor.processMessage(unhandled);
+    }
+
+    private static class BlackholeHandler<T extends Packet> extends PacketHandler<T> {
+
+        private final Blackhole blackhole;
+
+        BlackholeHandler(String identifier, Class<T> packetClass, Blackhole blackhole) {
+            super(identifier, JvmClassMappingKt.getKotlinClass(packetClass));
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void processPacket(@NotNull T packet) {
+            blackhole.consume(packet);
+        }
+    }
+}
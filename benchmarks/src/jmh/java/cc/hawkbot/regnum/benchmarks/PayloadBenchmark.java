@@ -0,0 +1,85 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.benchmarks;
+
+import cc.hawkbot.regnum.entities.Payload;
+import cc.hawkbot.regnum.entities.packets.IdentifyPacket;
+import cc.hawkbot.regnum.net.codec.PacketCodec;
+import cc.hawkbot.regnum.net.codec.PacketCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding of {@link Payload}s in every protocol version and codec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PayloadBenchmark {
+
+    @Param({"1", "2"})
+    public int version;
+
+    @Param({"json", "smile", "cbor"})
+    public String codecName;
+
+    private Payload payload;
+    private PacketCodec codec;
+    private String json;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        payload = Payload.of(new IdentifyPacket("SUPER-SECRET-SOCKET_TOKEN", Payload.VERSION, PacketCodecs.INSTANCE.getNames().toArray(new String[0])), IdentifyPacket.IDENTIFIER);
+        codec = PacketCodecs.INSTANCE.get(codecName);
+        json = payload.toJson(version);
+        encoded = codec.encode(payload, version);
+    }
+
+    @Benchmark
+    public String encodeJson() {
+        return payload.toJson(version);
+    }
+
+    @Benchmark
+    public IdentifyPacket decodeJson() throws IOException {
+        return Payload.fromJson(json).readPacket(IdentifyPacket.class);
+    }
+
+    @Benchmark
+    public byte[] encodeCodec() throws IOException {
+        return codec.encode(payload, version);
+    }
+
+    @Benchmark
+    public IdentifyPacket decodeCodec() throws IOException {
+        return codec.decode(ByteBuffer.wrap(encoded)).readPacket(IdentifyPacket.class);
+    }
+}
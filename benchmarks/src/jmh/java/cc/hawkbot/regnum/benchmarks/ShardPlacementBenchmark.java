@@ -0,0 +1,78 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.benchmarks;
+
+import cc.hawkbot.regnum.server.core.internal.ShardPlacement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the shard assignment of the load balancer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShardPlacementBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int shards;
+
+    @Param({"1", "10", "100"})
+    public int nodes;
+
+    private Integer[] shardIds;
+    private double[] capacities;
+    private double[] loads;
+
+    @Setup
+    public void setup() {
+        shardIds = new Integer[shards];
+        for (var i = 0; i < shards; i++) {
+            shardIds[i] = i;
+        }
+        // Mixed machine sizes with some shards already running
+        var random = new Random(42);
+        capacities = new double[nodes];
+        loads = new double[nodes];
+        for (var i = 0; i < nodes; i++) {
+            capacities[i] = 0.5 + random.nextDouble() * 2;
+            loads[i] = random.nextInt(10);
+        }
+    }
+
+    @Benchmark
+    public Integer[][] assign() {
+        return ShardPlacement.INSTANCE.assign(nodes, shardIds);
+    }
+
+    @Benchmark
+    public Integer[][] assignWeighted() {
+        return ShardPlacement.INSTANCE.assign(capacities, loads, shardIds);
+    }
+}
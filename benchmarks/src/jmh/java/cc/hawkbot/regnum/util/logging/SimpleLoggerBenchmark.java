@@ -0,0 +1,92 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.util.logging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the message formatting of the {@link SimpleLogger}.
+ * Lives in the logging package because the logger is package-private, the output is written into a {@link Blackhole}
+ * instead of {@link System#out}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SimpleLoggerBenchmark {
+
+    private SimpleLogger logger;
+    private final Exception exception = new Exception("Benchmark");
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        logger = new BlackholeLogger(blackhole);
+    }
+
+    @Benchmark
+    public void plain() {
+        logger.info("Received heartbeat from node");
+    }
+
+    @Benchmark
+    public void oneArgument() {
+        logger.info("Received heartbeat from node {}", "node-1");
+    }
+
+    @Benchmark
+    public void twoArguments() {
+        logger.info("Node {} started {} shards", "node-1", 42);
+    }
+
+    @Benchmark
+    public void throwable() {
+        logger.error("Error while processing packet", exception);
+    }
+
+    @Benchmark
+    public void disabled() {
+        logger.debug("Received heartbeat from node {}", "node-1");
+    }
+
+    private static class BlackholeLogger extends SimpleLogger {
+
+        private final Blackhole blackhole;
+
+        BlackholeLogger(Blackhole blackhole) {
+            super("Benchmark", Level.INFO);
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        void write(StringBuilder buf, Throwable t) {
+            blackhole.consume(buf.toString());
+            blackhole.consume(t);
+        }
+    }
+}
@@ -27,6 +27,7 @@ import cc.hawkbot.regnum.client.core.discord.ShardManager;
 import cc.hawkbot.regnum.client.core.discord.impl.JDAShardManager;
 import cc.hawkbot.regnum.client.core.internal.RegnumImpl;
 import cc.hawkbot.regnum.client.event.EventManager;
+import cc.hawkbot.regnum.client.event.impl.AbstractEventManager;
 import cc.hawkbot.regnum.client.event.impl.AnnotatedEventManger;
 import com.google.common.base.Preconditions;
 import kotlin.jvm.JvmClassMappingKt;
@@ -36,6 +37,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Builder for {@link Regnum} instances
@@ -46,6 +48,7 @@ public class RegnumBuilder {
     private ServerConfig serverConfig;
     private GameAnimatorConfig gameAnimatorConfig;
     private EventManager eventManager = new AnnotatedEventManger();
+    private ExecutorService eventExecutor;
     private List<Feature> disabledFeatures = new ArrayList<>();
     private Class<? extends ShardManager> shardManager = JDAShardManager.class;
     private List<Class<? extends Extension>> extensions = new ArrayList<>();
@@ -116,6 +119,30 @@ public class RegnumBuilder {
         return this;
     }
 
+    /**
+     * Returns the executor that replaces the executor of the event manager or {@code null} if the event managers own executor is used.
+     *
+     * @return the event executor
+     */
+    public ExecutorService getEventExecutor() {
+        return eventExecutor;
+    }
+
+    /**
+     * Sets the executor the event manager calls its listeners on, the event manager has to extend {@link AbstractEventManager}.
+     * Use {@link cc.hawkbot.regnum.client.event.EventExecutors#virtual()} to call listeners on virtual threads, events are
+     * only kept in order per guild or shard then, events without partition key are handled in no particular order.
+     *
+     * @param eventExecutor the executor
+     * @return the current builder
+     * @see cc.hawkbot.regnum.client.event.EventExecutors
+     */
+    @NotNull
+    public RegnumBuilder setEventExecutor(@NotNull ExecutorService eventExecutor) {
+        this.eventExecutor = eventExecutor;
+        return this;
+    }
+
     /**
      * Returns the current list of event listeners.
      *
@@ -239,6 +266,10 @@ public class RegnumBuilder {
      */
     @NotNull
     public Regnum build() {
+        if (eventExecutor != null) {
+            Preconditions.checkState(eventManager instanceof AbstractEventManager, "Event executors are only supported by event managers extending AbstractEventManager");
+            ((AbstractEventManager) eventManager).setExecutor(eventExecutor);
+        }
 
         // Build
         return new RegnumImpl(
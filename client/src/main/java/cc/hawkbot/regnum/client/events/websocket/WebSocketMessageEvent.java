@@ -31,6 +31,7 @@ import org.jetbrains.annotations.NotNull;
 public class WebSocketMessageEvent extends WebSocketEvent {
 
     private final String message;
+    private volatile Payload payload;
 
     /**
      * Constructs a new websocket message event.
@@ -45,18 +46,58 @@ public class WebSocketMessageEvent extends WebSocketEvent {
         this.message = message;
     }
 
+    /**
+     * Constructs a new websocket message event for an already decoded message.
+     *
+     * @param regnum    the regnum instance
+     * @param websocket the websocket instance
+     * @param message   the message
+     * @param payload   the decoded payload
+     * @see WebSocketEvent#WebSocketEvent(Regnum, Websocket)
+     */
+    public WebSocketMessageEvent(@NotNull Regnum regnum, @NotNull Websocket websocket, @NotNull String message, @NotNull Payload payload) {
+        super(regnum, websocket);
+        this.message = message;
+        this.payload = payload;
+    }
+
+    /**
+     * Constructs a new websocket message event for a binary frame.
+     *
+     * @param regnum    the regnum instance
+     * @param websocket the websocket instance
+     * @param payload   the decoded payload
+     * @see WebSocketEvent#WebSocketEvent(Regnum, Websocket)
+     */
+    public WebSocketMessageEvent(@NotNull Regnum regnum, @NotNull Websocket websocket, @NotNull Payload payload) {
+        super(regnum, websocket);
+        this.message = null;
+        this.payload = payload;
+    }
+
     /**
      * Returns the message.
+     * Binary frames get converted to JSON.
      *
      * @return the message
      */
     @NotNull
     public String getMessage() {
-        return message;
+        return message != null ? message : payload.toJson(Payload.VERSION);
     }
 
-    @NotNull
+    /**
+     * Returns the message as a {@link Payload}.
+     * The message is only decoded once.
+     *
+     * @return the payload
+     */
     public Payload payload() {
-        return Payload.fromJson(message);
+        var payload = this.payload;
+        if (payload == null) {
+            payload = Payload.fromJson(message);
+            this.payload = payload;
+        }
+        return payload;
     }
 }
@@ -19,14 +19,18 @@
 
 package cc.hawkbot.regnum.client.config
 
+import cc.hawkbot.regnum.net.codec.PacketCodecs
+
 /**
  * Configuration for Regnum related settings.
  *
  * @property host the host of the Regnum server
  * @property token the token for authorization
+ * @property codecs the names of the [cc.hawkbot.regnum.net.codec.PacketCodec]s offered to the server in descending order of preference
  * @constructor constructs a new server config
  */
-data class ServerConfig(
+data class ServerConfig @JvmOverloads constructor(
         val host: String,
-        val token: String
+        val token: String,
+        val codecs: List<String> = PacketCodecs.names
 )
\ No newline at end of file
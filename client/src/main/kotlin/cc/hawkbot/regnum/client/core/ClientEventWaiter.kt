@@ -23,57 +23,30 @@ import cc.hawkbot.regnum.client.event.EventManager
 import cc.hawkbot.regnum.client.event.EventSubscriber
 import cc.hawkbot.regnum.client.event.impl.EventListener
 import cc.hawkbot.regnum.waiter.EventWaiter
-import java.util.concurrent.*
-import java.util.function.Predicate
+import cc.hawkbot.regnum.waiter.impl.DefaultEventWaiter
 
 /**
- * Implementation of [EventWaiter].
+ * Implementation of [EventWaiter] which receives events using a single listener.
  * @param eventManager the event manager
  */
 class ClientEventWaiter(
         private val eventManager: EventManager
-) : EventWaiter {
+) : DefaultEventWaiter() {
 
-    private val scheduler = Executors.newScheduledThreadPool(10)
+    private val listener = WaiterListener()
 
-    override fun <T> waitFor(eventClass: Class<T>, predicate: Predicate<T>, timeout: Long, timeoutUnit: TimeUnit): CompletionStage<T> {
-        val future = CompletableFuture<T>()
-        val listener = object : WaitingEventListener() {
-            @EventSubscriber
-            @Suppress("unused")
-            override fun onEvent(event: Any) {
-                @Suppress("UNCHECKED_CAST")
-                if (eventClass.isInstance(event)) {
-                    val foundEvent = event as T
-                    if (predicate.test(foundEvent)) {
-                        cancelTimeout()
-                        unregister(eventManager)
-                        future.complete(foundEvent)
-                    }
-                }
-            }
-        }
-        val timeoutFuture = scheduler.schedule({
-            eventManager.unregister(eventManager)
-            future.completeExceptionally(EventWaiter.TimeoutException("Timeout exceeded"))
-        }, timeout, timeoutUnit)
-        listener.future = timeoutFuture
+    init {
         eventManager.register(listener)
-        return future
     }
 
-    private abstract class WaitingEventListener : EventListener {
+    private inner class WaiterListener : EventListener {
 
-        lateinit var future: ScheduledFuture<*>
-
-        fun cancelTimeout() {
-            future.cancel(true)
-        }
-
-        fun unregister(eventManager: EventManager) {
-            eventManager.unregister(this)
-        }
+        @EventSubscriber
+        override fun onEvent(event: Any) = dispatch(event)
     }
 
-    override fun close() = scheduler.shutdownNow().run { Unit }
-}
\ No newline at end of file
+    override fun close() {
+        eventManager.unregister(listener)
+        super.close()
+    }
+}
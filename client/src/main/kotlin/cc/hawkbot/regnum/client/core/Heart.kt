@@ -19,20 +19,23 @@
 
 package cc.hawkbot.regnum.client.core
 
+import cc.hawkbot.regnum.util.LatencyRecorder
 import java.time.Instant
 import java.time.OffsetDateTime
 import java.time.ZoneId
 
 /**
  * The Heart(beater) of the client.
- * @property lastHeartbeat the timestamp of the last heartbeat
- * @property ping the last ping between the client and the server
+ * @property lastHeartbeat the timestamp of the last acknowledged heartbeat
+ * @property ping the last round trip time between the client and the server in milliseconds
+ * @property latency the recent heartbeat round trip times
  */
 @Suppress("unused")
 interface Heart {
 
     var lastHeartbeat: Long
     var ping: Int
+    val latency: LatencyRecorder
 
     /**
      * Returns the heartbeat as an [OffsetDateTime].
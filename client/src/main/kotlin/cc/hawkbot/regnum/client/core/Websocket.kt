@@ -22,6 +22,8 @@ package cc.hawkbot.regnum.client.core
 import cc.hawkbot.regnum.client.core.internal.WebsocketImpl
 import cc.hawkbot.regnum.entities.Payload
 import cc.hawkbot.regnum.net.PacketProcessor
+import cc.hawkbot.regnum.net.WireTrace
+import cc.hawkbot.regnum.util.LatencyRecorder
 import com.google.common.base.Preconditions
 import java.io.Closeable
 
@@ -37,6 +39,11 @@ interface Websocket : Closeable {
 
     val packetProcessor: PacketProcessor
 
+    /**
+     * The trace of the payloads exchanged with the server, disabled by default.
+     */
+    val wireTrace: WireTrace
+
     /**
      * Connects to the websocket.
      */
@@ -62,4 +69,13 @@ interface Websocket : Closeable {
         Preconditions.checkArgument((this as WebsocketImpl).isHeartInitialized(), "Heart is not initialized yet")
         return heart.ping
     }
+
+    /**
+     * Returns the percentiles of the recent heartbeat round trip times.
+     * @return the percentiles of the recent heartbeat round trip times
+     */
+    fun latency(): LatencyRecorder.Snapshot {
+        Preconditions.checkArgument((this as WebsocketImpl).isHeartInitialized(), "Heart is not initialized yet")
+        return heart.latency.snapshot()
+    }
 }
\ No newline at end of file
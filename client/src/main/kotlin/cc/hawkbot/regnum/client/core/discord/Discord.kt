@@ -45,4 +45,10 @@ interface Discord {
      * @param shards the id of shards
      */
     fun addShards(shards: Array<out Int>)
+
+    /**
+     * Stops all shards in the array
+     * @param shards the id of shards
+     */
+    fun removeShards(shards: Array<out Int>)
 }
\ No newline at end of file
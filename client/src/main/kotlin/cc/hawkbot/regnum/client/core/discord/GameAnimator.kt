@@ -51,6 +51,11 @@ class GameAnimator(
      */
     fun start() = scheduler.scheduleAtFixedRate(this::change, 0, interval, TimeUnit.SECONDS).run { Unit }
 
+    /**
+     * Stops the game animator
+     */
+    fun stop() = scheduler.shutdownNow().run { Unit }
+
     private fun change() = games[ThreadLocalRandom.current().nextInt(games.size)].apply(this)
 
     /**
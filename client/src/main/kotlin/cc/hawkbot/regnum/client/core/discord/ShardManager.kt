@@ -33,5 +33,28 @@ interface ShardManager {
     fun shutdown()
     fun applyGame(game: GameAnimator.Game)
     fun addShard(id: Int)
+
+    /**
+     * Stops the shard with the [id]. The server starts the shard on another node once it got reported as disconnected,
+     * so implementations have to stop it for real.
+     * @param id the id of the shard
+     */
+    fun removeShard(id: Int)
+
     fun start(token: String, shards: Array<Int>, shardsTotal: Int, regnum: RegnumImpl)
+
+    /**
+     * Starts the [shards] like [start] but, if [coordinated] is `true`, only identifies shards once the server granted
+     * them a slot using [grantStart].
+     * @param coordinated whether the server coordinates the shard starts
+     */
+    fun start(token: String, shards: Array<Int>, shardsTotal: Int, regnum: RegnumImpl, coordinated: Boolean) =
+            start(token, shards, shardsTotal, regnum)
+
+    /**
+     * Identifies the shard with the [id] because the server granted it a start slot.
+     * @param id the id of the shard
+     */
+    fun grantStart(id: Int) {
+    }
 }
\ No newline at end of file
@@ -21,9 +21,13 @@ package cc.hawkbot.regnum.client.core.discord
 
 import cc.hawkbot.regnum.client.Regnum
 import cc.hawkbot.regnum.client.events.discord.ReadyEvent
+import cc.hawkbot.regnum.entities.Payload
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket
+import java.util.concurrent.ConcurrentHashMap
 
 /**
- * Listener that watches shards to fire [cc.hawkbot.regnum.client.events.discord.ReadyEvent]
+ * Listener that watches shards to fire [cc.hawkbot.regnum.client.events.discord.ReadyEvent] and reports their
+ * status to the server.
  */
 class ShardWatcher(private val regnum: Regnum, private val shardsTotal: Int) {
 
@@ -31,6 +35,7 @@ class ShardWatcher(private val regnum: Regnum, private val shardsTotal: Int) {
     private var availableGuilds = 0
     private var unavailableGuilds = 0
     private var ready = false
+    private val statuses = ConcurrentHashMap<Int, ShardStatusPacket.Status>()
 
     fun shardReady(guildAvailableCount: Int, guildUnavailableCount: Int) {
         shardsConnected++
@@ -47,4 +52,15 @@ class ShardWatcher(private val regnum: Regnum, private val shardsTotal: Int) {
         availableGuilds -= guildAvailableCount
         unavailableGuilds -= guildUnavailableCount
     }
-}
\ No newline at end of file
+
+    /**
+     * Sends the [status] of the [shard] to the server if it changed since the last report.
+     * @param shard the shard id
+     * @param status the new status of the shard
+     */
+    fun shardStatus(shard: Int, status: ShardStatusPacket.Status) {
+        if (statuses.put(shard, status) != status) {
+            regnum.websocket.send(Payload.of(ShardStatusPacket(shard, status), ShardStatusPacket.IDENTIFIER))
+        }
+    }
+}
@@ -27,6 +27,7 @@ import cc.hawkbot.regnum.client.core.internal.RegnumImpl
 import cc.hawkbot.regnum.client.event.EventSubscriber
 import cc.hawkbot.regnum.client.events.discord.ReadyEvent
 import cc.hawkbot.regnum.util.logging.Logger
+import java.util.concurrent.atomic.AtomicBoolean
 import kotlin.reflect.KClass
 import kotlin.reflect.full.primaryConstructor
 
@@ -36,6 +37,7 @@ import kotlin.reflect.full.primaryConstructor
  * @param token the Discord bot token
  * @param shards the ids of shards this instance should start
  * @param shardsTotal the total count of shards
+ * @param coordinated whether the server grants the shards slots for identifying
  *
  * @constructor Constructs a new Discord client
  */
@@ -45,7 +47,8 @@ class DiscordImpl(
         shardManagerClass: KClass<out ShardManager>,
         token: String,
         shards: Array<Int>,
-        shardsTotal: Int
+        shardsTotal: Int,
+        coordinated: Boolean = false
 ) : Discord {
 
     private val log = Logger.getLogger()
@@ -53,15 +56,29 @@ class DiscordImpl(
     override val gameAnimator: GameAnimator
     private var availableGuilds: Int = 0
     private var unavailableGuilds: Int = 0
+    private val running = AtomicBoolean(true)
 
     init {
         (regnum as RegnumImpl).discord = this
         regnum.eventManager.register(this)
         log.info("[Discord] Starting shards ${shards.joinToString()} total $shardsTotal")
-        shardManager.start(token, shards, shardsTotal, regnum)
+        shardManager.start(token, shards, shardsTotal, regnum, coordinated)
         gameAnimator = GameAnimator(regnum)
     }
 
+    /**
+     * @see Discord.shutdown
+     */
+    override fun shutdown() {
+        if (!running.compareAndSet(true, false)) {
+            return
+        }
+        log.info("[Discord] Shutting down all shards")
+        regnum.eventManager.unregister(this)
+        gameAnimator.stop()
+        shardManager.shutdown()
+    }
+
     /**
      * @see Discord.addShards
      */
@@ -72,6 +89,16 @@ class DiscordImpl(
         }
     }
 
+    /**
+     * @see Discord.removeShards
+     */
+    override fun removeShards(shards: Array<out Int>) {
+        log.info("[Discord] Removing ${shards.joinToString()} because they got moved to another node")
+        shards.forEach {
+            shardManager.removeShard(it)
+        }
+    }
+
     @EventSubscriber
     @Suppress("unused")
     private fun whenReady(event: ReadyEvent) {
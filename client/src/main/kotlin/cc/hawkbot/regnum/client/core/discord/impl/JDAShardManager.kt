@@ -26,11 +26,14 @@ import cc.hawkbot.regnum.client.core.discord.ShardWatcher
 import cc.hawkbot.regnum.client.core.internal.RegnumImpl
 import cc.hawkbot.regnum.client.event.EventManager
 import cc.hawkbot.regnum.client.event.EventSubscriber
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket
+import net.dv8tion.jda.api.JDA
 import net.dv8tion.jda.api.OnlineStatus
 import net.dv8tion.jda.api.entities.Activity
 import net.dv8tion.jda.api.events.DisconnectEvent
 import net.dv8tion.jda.api.events.GenericEvent
 import net.dv8tion.jda.api.events.ReadyEvent
+import net.dv8tion.jda.api.events.StatusChangeEvent
 import net.dv8tion.jda.api.hooks.IEventManager
 import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder
 
@@ -42,6 +45,7 @@ class JDAShardManager : ShardManager {
         get() = -1
     override val averageGatewayPing: Long
         get() = jda.averageGatewayPing.toLong()
+    private var sessionController: RegnumSessionController? = null
     override val shardsTotal: Any
         get() = jda.shardsTotal
     override val guildsSize: Int
@@ -50,7 +54,10 @@ class JDAShardManager : ShardManager {
         get() = jda.users.size
     override lateinit var shardWatcher: ShardWatcher
 
-    override fun shutdown()  = jda.shutdown()
+    override fun shutdown() {
+        sessionController?.shutdown()
+        jda.shutdown()
+    }
 
     override fun applyGame(game: GameAnimator.Game) {
         jda.setPresence(
@@ -61,7 +68,12 @@ class JDAShardManager : ShardManager {
 
     override fun addShard(id: Int) = jda.start(id)
 
-    override fun start(token: String, shards: Array<Int>, shardsTotal: Int, regnum: RegnumImpl) {
+    override fun removeShard(id: Int) = jda.shutdown(id)
+
+    override fun start(token: String, shards: Array<Int>, shardsTotal: Int, regnum: RegnumImpl) =
+            start(token, shards, shardsTotal, regnum, false)
+
+    override fun start(token: String, shards: Array<Int>, shardsTotal: Int, regnum: RegnumImpl, coordinated: Boolean) {
         shardWatcher = ShardWatcher(regnum, shards.size)
         val builder = DefaultShardManagerBuilder()
                 .setToken(token)
@@ -71,10 +83,19 @@ class JDAShardManager : ShardManager {
                 .addEventListeners(JDAShardWatcher(regnum))
                 .setActivity(Activity.playing("Starting ..."))
                 .setStatus(OnlineStatus.DO_NOT_DISTURB)
+        if (coordinated) {
+            val controller = RegnumSessionController(regnum)
+            sessionController = controller
+            builder.setSessionController(controller)
+        }
 
         jda = builder.build()
     }
 
+    override fun grantStart(id: Int) {
+        sessionController?.grant(id)
+    }
+
     @Suppress("unused")
     private inner class JDAShardWatcher(private val regnum: Regnum) {
 
@@ -97,8 +118,25 @@ class JDAShardManager : ShardManager {
         }
     }
 
-    private class JDAEventManager(private val eventManager: EventManager): IEventManager {
-        override fun handle(event: GenericEvent) = eventManager.fireEvent(event)
+    private fun reportStatus(event: StatusChangeEvent) {
+        val status = when (event.newStatus) {
+            JDA.Status.CONNECTED -> ShardStatusPacket.Status.READY
+            JDA.Status.DISCONNECTED, JDA.Status.SHUTDOWN, JDA.Status.FAILED_TO_LOGIN -> ShardStatusPacket.Status.DISCONNECTED
+            // The session is still open until the shard is shut down
+            JDA.Status.SHUTTING_DOWN -> return
+            else -> ShardStatusPacket.Status.CONNECTING
+        }
+        shardWatcher.shardStatus(event.jda.shardInfo.shardId, status)
+    }
+
+    private inner class JDAEventManager(private val eventManager: EventManager): IEventManager {
+        override fun handle(event: GenericEvent) {
+            // Reported on the JDA thread, the event executor could reorder the status changes of a shard
+            if (event is StatusChangeEvent) {
+                reportStatus(event)
+            }
+            eventManager.fireEvent(event)
+        }
 
         override fun register(listener: Any) = eventManager.register(listener)
 
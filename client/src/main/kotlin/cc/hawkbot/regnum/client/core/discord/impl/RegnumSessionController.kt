@@ -0,0 +1,86 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.client.core.discord.impl
+
+import cc.hawkbot.regnum.client.Regnum
+import cc.hawkbot.regnum.entities.Payload
+import cc.hawkbot.regnum.entities.packets.discord.StartRequestPacket
+import cc.hawkbot.regnum.util.DefaultThreadFactory
+import cc.hawkbot.regnum.util.logging.Logger
+import net.dv8tion.jda.api.utils.SessionController
+import net.dv8tion.jda.api.utils.SessionControllerAdapter
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+
+/**
+ * [SessionController] which lets the Regnum server decide when a shard may identify.
+ *
+ * Every shard that wants to identify sends a [StartRequestPacket] and is only connected once the server answered with
+ * a grant, so all nodes together keep to Discord's identify rate limit. Reconnects and resumes do not count towards
+ * the session start limit and are connected by JDA's default controller without asking the server.
+ * @param regnum the Regnum instance
+ */
+class RegnumSessionController(private val regnum: Regnum) : SessionControllerAdapter() {
+
+    private val log = Logger.getLogger()
+    private val waiting = ConcurrentHashMap<Int, SessionController.SessionConnectNode>()
+    private val connector = Executors.newSingleThreadExecutor(DefaultThreadFactory("SessionConnector"))
+
+    override fun appendSession(node: SessionController.SessionConnectNode) {
+        if (node.isReconnect) {
+            super.appendSession(node)
+            return
+        }
+        val shard = node.shardInfo.shardId
+        waiting[shard] = node
+        regnum.websocket.send(Payload.of(StartRequestPacket(shard), StartRequestPacket.IDENTIFIER))
+    }
+
+    override fun removeSession(node: SessionController.SessionConnectNode) {
+        super.removeSession(node)
+        waiting.remove(node.shardInfo.shardId, node)
+    }
+
+    /**
+     * Connects the shard with the [id] if it is waiting for a grant.
+     * @param id the id of the shard
+     */
+    fun grant(id: Int) {
+        val node = waiting.remove(id) ?: return
+        connector.execute {
+            try {
+                // The server already spaces out the grants so the connector must not wait for READY
+                node.run(true)
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+            } catch (e: Exception) {
+                log.error("[Discord] Could not connect shard $id", e)
+            }
+        }
+    }
+
+    /**
+     * Stops connecting shards.
+     */
+    fun shutdown() {
+        waiting.clear()
+        connector.shutdownNow()
+    }
+}
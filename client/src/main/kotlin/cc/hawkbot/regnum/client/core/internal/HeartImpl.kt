@@ -21,60 +21,111 @@ package cc.hawkbot.regnum.client.core.internal
 
 import cc.hawkbot.regnum.client.Regnum
 import cc.hawkbot.regnum.client.core.Heart
-import cc.hawkbot.regnum.client.events.websocket.WebSocketMessageEvent
 import cc.hawkbot.regnum.entities.Payload
 import cc.hawkbot.regnum.entities.packets.HeartBeatAckPacket
 import cc.hawkbot.regnum.entities.packets.HeartBeatPacket
 import cc.hawkbot.regnum.entities.packets.HelloPacket
+import cc.hawkbot.regnum.util.DefaultThreadFactory
+import cc.hawkbot.regnum.util.LatencyRecorder
 import cc.hawkbot.regnum.util.logging.Logger
-import cc.hawkbot.regnum.waiter.EventWaiter
+import org.java_websocket.framing.CloseFrame
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executors
 import java.util.concurrent.ScheduledFuture
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
 
 /**
  * Implementation of [Heart].
+ * Heartbeats are numbered and matched with their HEARTBEAT_ACK by sequence, round trip times are measured using [System.nanoTime].
+ * Legacy servers do not echo the sequence, so their acknowledgements match the oldest pending heartbeat.
+ * The heart is started by every HELLO and stopped when the connection gets lost, so it survives reconnects.
  * @property regnum the regnum instance
- * @param hello the [HelloPacket]
  */
 class HeartImpl(
-        private val regnum: Regnum,
-        hello: HelloPacket
+        private val regnum: Regnum
 ) : Heart {
 
     companion object {
         const val MARGIN = 500.toLong()
+        const val SAMPLES = 128
     }
 
     private val log = Logger.getLogger()
-    private val scheduler = Executors.newSingleThreadScheduledExecutor()
-    private val future: ScheduledFuture<*>
+    private val scheduler = Executors.newSingleThreadScheduledExecutor(DefaultThreadFactory("Heart"))
+    private var future: ScheduledFuture<*>? = null
+    private val sequence = AtomicLong()
+    // Sequence -> nanoTime the heartbeat was sent at
+    private val pending = ConcurrentHashMap<Long, Long>()
+    private val timeout = TimeUnit.SECONDS.toNanos(MARGIN)
+    // Whether the server echoes the sequence in HEARTBEAT_ACK
+    @Volatile
+    private var sequenced = false
 
+    @Volatile
     override var lastHeartbeat: Long = -1
 
+    @Volatile
     override var ping: Int = -1
 
-    init {
+    override val latency = LatencyRecorder(SAMPLES)
+
+    /**
+     * Starts beating in the interval of the [hello] packet, a running schedule gets replaced.
+     * @param hello the [HelloPacket]
+     */
+    @Synchronized
+    fun start(hello: HelloPacket) {
+        future?.cancel(false)
+        // Heartbeats of the previous connection will never be acknowledged
+        pending.clear()
+        sequenced = hello.protocolVersion >= Payload.VERSION
         future = scheduler.scheduleAtFixedRate(this::beat, 0, hello.heartbeatInterval.toLong(), TimeUnit.SECONDS)
     }
 
+    /**
+     * Stops beating until the heart gets started again.
+     */
+    @Synchronized
+    fun stop() {
+        future?.cancel(false)
+        future = null
+        pending.clear()
+    }
+
+    /**
+     * Stops beating and releases the heartbeat thread.
+     */
+    fun shutdown() {
+        stop()
+        scheduler.shutdownNow()
+    }
+
     private fun beat() {
-        log.info("[WS] Sending heartbeat")
-        // Send heartbeat
-        val start = System.currentTimeMillis()
-        regnum.websocket.send(Payload.of(HeartBeatPacket(), HeartBeatPacket.IDENTIFIER))
-        val event = regnum.eventWaiter.waitFor(WebSocketMessageEvent::class.java, { it.payload().type == HeartBeatAckPacket.IDENTIFIER }, MARGIN, TimeUnit.SECONDS)
-        event.exceptionally {
-            if (it is EventWaiter.TimeoutException) {
-                scheduler.shutdownNow()
-                log.error("[WS] Closing websocket connection! Didn't received HEARTBEAT in time")
-                regnum.websocket.close()
-            }
-            return@exceptionally null
-        }
-        event.thenRun {
-            val end = System.currentTimeMillis()
-            ping = ((end - start) / 1000L).toInt()
+        val now = System.nanoTime()
+        if (pending.values.any { now - it > timeout }) {
+            stop()
+            log.error("[WS] Closing websocket connection! Didn't received HEARTBEAT_ACK in time")
+            // The connection is dropped without closing the websocket so it reconnects
+            (regnum.websocket as WebsocketImpl).closeConnection(CloseFrame.ABNORMAL_CLOSE, "Missed HEARTBEAT_ACK")
+            return
         }
+        log.debug("[WS] Sending heartbeat")
+        val sequence = sequence.incrementAndGet()
+        pending[sequence] = now
+        regnum.websocket.send(Payload.of(HeartBeatPacket(sequence), HeartBeatPacket.IDENTIFIER))
+    }
+
+    /**
+     * Records the round trip time of the heartbeat acknowledged by [packet].
+     * @param packet the [HeartBeatAckPacket]
+     */
+    fun acknowledge(packet: HeartBeatAckPacket) {
+        val sequence = if (sequenced) packet.sequence else pending.keys.sorted().firstOrNull() ?: return
+        val sent = pending.remove(sequence) ?: return
+        val rtt = System.nanoTime() - sent
+        latency.record(rtt)
+        ping = TimeUnit.NANOSECONDS.toMillis(rtt).toInt()
+        lastHeartbeat = System.currentTimeMillis()
     }
-}
\ No newline at end of file
+}
@@ -20,11 +20,14 @@
 package cc.hawkbot.regnum.client.core.internal
 
 import cc.hawkbot.regnum.client.Regnum
+import cc.hawkbot.regnum.client.event.impl.AbstractEventManager
 import cc.hawkbot.regnum.entities.Payload
 import cc.hawkbot.regnum.entities.packets.MetricsPacket
+import cc.hawkbot.regnum.util.PartitionedExecutorService
 import java.io.Closeable
 import java.lang.management.ManagementFactory
 import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledFuture
 import java.util.concurrent.TimeUnit
 
 /**
@@ -34,20 +37,26 @@ import java.util.concurrent.TimeUnit
 class MetricsSender(private val regnum: Regnum) : Closeable {
 
     private val scheduler = Executors.newSingleThreadScheduledExecutor()
+    private var future: ScheduledFuture<*>? = null
 
     /**
-     * Starts metrics sender thread.
+     * Starts metrics sender thread, calls after reconnects keep the running schedule.
      */
+    @Synchronized
     fun start() {
-        scheduler.scheduleAtFixedRate(this::post, 0, 5, TimeUnit.MINUTES)
+        if (future == null) {
+            future = scheduler.scheduleAtFixedRate(this::post, 0, 5, TimeUnit.MINUTES)
+        }
     }
 
     private fun post() {
+        // Metrics sent while reconnecting get buffered by the websocket
+        val regnum = regnum as RegnumImpl
         val restPing: Long
         val wsPing: Long
         val guilds: Long
         val users: Long
-        if ((regnum as RegnumImpl).discordInitialized()) {
+        if (regnum.discordInitialized()) {
             val discord = regnum.discord.shardManager
             restPing = discord.averageRestPing
             wsPing = discord.averageGatewayPing
@@ -65,7 +74,10 @@ class MetricsSender(private val regnum: Regnum) : Closeable {
         val bean = ManagementFactory.getOperatingSystemMXBean()
         val cpuUsage = bean.availableProcessors.toLong()
         val cpus = bean.availableProcessors
-        regnum.websocket.send(Payload.of(MetricsPacket(restPing, wsPing, usedMemory, memory, cpuUsage, cpus, guilds, users), MetricsPacket.IDENTIFIER))
+        val executor = (regnum.eventManager as? AbstractEventManager)?.executor as? PartitionedExecutorService
+        val metrics = MetricsPacket(restPing, wsPing, usedMemory, memory, cpuUsage, cpus, guilds, users)
+                .setEventQueueDepths(executor?.queueDepths())
+        regnum.websocket.send(Payload.of(metrics, MetricsPacket.IDENTIFIER))
     }
 
     override fun close() = scheduler.shutdown()
@@ -0,0 +1,111 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.client.core.internal
+
+import cc.hawkbot.regnum.entities.Payload
+import cc.hawkbot.regnum.entities.packets.MetricsPacket
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket
+import cc.hawkbot.regnum.entities.packets.discord.StartRequestPacket
+import java.util.ArrayDeque
+
+/**
+ * Buffer of payloads which could not be sent while the websocket was disconnected.
+ *
+ * Payloads the server needs to coordinate shards are never evicted: START_REQUEST is kept once per shard and
+ * SHARD_STATUS only with the latest status per shard, so both are bounded by the amount of shards. Only the latest
+ * METRICS are kept. All other payloads share [capacity] slots in which the oldest payloads get overwritten.
+ * @param capacity the maximal amount of buffered payloads which can be evicted
+ */
+class OutboundBuffer(private val capacity: Int) {
+
+    // Buffered payloads in the order they got buffered by their coalescing key or a sequence number
+    private val payloads = LinkedHashMap<Any, Payload>()
+    // Sequence numbers of the payloads which can be evicted, oldest first
+    private val evictable = ArrayDeque<Long>()
+    private var sequence = 0L
+
+    /**
+     * The amount of payloads that got overwritten since the buffer got created.
+     */
+    var dropped = 0L
+        @Synchronized get
+        private set
+
+    /**
+     * Buffers the [payload], replacing an outdated payload of the same kind or the oldest evictable payload.
+     * @param payload the payload
+     */
+    @Synchronized
+    fun offer(payload: Payload) {
+        when (val key = key(payload)) {
+            null -> {
+                if (capacity <= 0) {
+                    dropped++
+                    return
+                }
+                if (evictable.size == capacity) {
+                    payloads.remove(evictable.poll())
+                    dropped++
+                }
+                val sequence = sequence++
+                evictable.add(sequence)
+                payloads[sequence] = payload
+            }
+            // Requests keep their position since the shard waits since then
+            is StartRequestKey -> if (payloads.putIfAbsent(key, payload) != null) dropped++
+            else -> {
+                if (payloads.remove(key) != null) {
+                    dropped++
+                }
+                payloads[key] = payload
+            }
+        }
+    }
+
+    /**
+     * Removes all buffered payloads in the order they got buffered.
+     * @return the payloads
+     */
+    @Synchronized
+    fun drain(): List<Payload> {
+        val drained = ArrayList(payloads.values)
+        payloads.clear()
+        evictable.clear()
+        return drained
+    }
+
+    /**
+     * Returns the amount of buffered payloads.
+     * @return the amount of payloads
+     */
+    @Synchronized
+    fun size() = payloads.size
+
+    private fun key(payload: Payload): Any? = when (payload.type) {
+        MetricsPacket.IDENTIFIER -> MetricsPacket.IDENTIFIER
+        StartRequestPacket.IDENTIFIER -> payload.getPacket(StartRequestPacket::class.java)?.let { StartRequestKey(it.shard) }
+        ShardStatusPacket.IDENTIFIER -> payload.getPacket(ShardStatusPacket::class.java)?.let { ShardStatusKey(it.shard) }
+        else -> null
+    }
+
+    private data class StartRequestKey(val shard: Int)
+
+    private data class ShardStatusKey(val shard: Int)
+}
@@ -0,0 +1,93 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.client.core.internal
+
+import cc.hawkbot.regnum.util.DefaultThreadFactory
+import cc.hawkbot.regnum.util.logging.Logger
+import java.io.Closeable
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Schedules reconnects after the websocket connection got lost.
+ *
+ * The delay doubles with every failed attempt up to [MAX_DELAY] and only its first half is fixed while the second half
+ * is random, so nodes which lost their connection at the same time, e.g. because the server restarted, do not
+ * reconnect all at once.
+ * @param reconnect the action which reconnects the websocket, it must not be called by the websocket threads
+ */
+class ReconnectSupervisor(private val reconnect: () -> Unit) : Closeable {
+
+    companion object {
+        /**
+         * Milliseconds before the first reconnect attempt.
+         */
+        const val BASE_DELAY = 1000L
+        /**
+         * Maximal milliseconds between two reconnect attempts.
+         */
+        const val MAX_DELAY = 60_000L
+    }
+
+    private val log = Logger.getLogger()
+    private val scheduler = Executors.newSingleThreadScheduledExecutor(DefaultThreadFactory("WebsocketReconnect"))
+    private val attempts = AtomicInteger()
+
+    /**
+     * Returns the delay of the [attempt] in milliseconds without jitter.
+     * @param attempt the null-based attempt
+     * @return the delay
+     */
+    fun backoff(attempt: Int) = Math.min(BASE_DELAY shl Math.min(attempt, 16), MAX_DELAY)
+
+    /**
+     * Schedules the next reconnect attempt.
+     */
+    fun schedule() {
+        if (scheduler.isShutdown) {
+            return
+        }
+        val backoff = backoff(attempts.getAndIncrement())
+        val delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1)
+        log.info("[WS] Reconnecting in {}ms", delay)
+        scheduler.schedule({
+            try {
+                reconnect()
+            } catch (e: Exception) {
+                log.error("[WS] Could not reconnect", e)
+                schedule()
+            }
+        }, delay, TimeUnit.MILLISECONDS)
+    }
+
+    /**
+     * Resets the backoff after the connection got established.
+     */
+    fun connected() = attempts.set(0)
+
+    /**
+     * Stops reconnecting.
+     */
+    override fun close() {
+        scheduler.shutdownNow()
+    }
+}
@@ -72,7 +72,7 @@ open class RegnumImpl(
 
 
     private fun websocket(serverConfig: ServerConfig) {
-        websocket = WebsocketImpl(serverConfig.host, this)
+        websocket = WebsocketImpl(serverConfig.host, this, serverConfig.codecs)
         metricsSender = MetricsSender(this)
         log.info("[Regnum] Connecting to server")
         websocket.start()
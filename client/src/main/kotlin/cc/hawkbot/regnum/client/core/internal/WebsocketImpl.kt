@@ -28,34 +28,93 @@ import cc.hawkbot.regnum.client.events.websocket.WebSocketConnectedEvent
 import cc.hawkbot.regnum.client.events.websocket.WebSocketErrorEvent
 import cc.hawkbot.regnum.client.events.websocket.WebSocketMessageEvent
 import cc.hawkbot.regnum.entities.Payload
+import cc.hawkbot.regnum.entities.packets.HeartBeatPacket
 import cc.hawkbot.regnum.entities.packets.IdentifyPacket
+import cc.hawkbot.regnum.entities.packets.ResumePacket
 import cc.hawkbot.regnum.net.PacketProcessor
+import cc.hawkbot.regnum.net.WireTrace
+import cc.hawkbot.regnum.net.codec.PacketCodec
+import cc.hawkbot.regnum.net.codec.PacketCodecs
 import cc.hawkbot.regnum.util.logging.Logger
 import org.java_websocket.client.WebSocketClient
+import org.java_websocket.exceptions.WebsocketNotConnectedException
 import org.java_websocket.handshake.ServerHandshake
-import java.net.ConnectException
+import java.io.IOException
 import java.net.URI
+import java.nio.ByteBuffer
 
 /**
- * Websocket client
+ * Websocket client which reconnects with jittered exponential backoff and resumes its session after losing the connection.
+ * Payloads sent while disconnected are buffered in an [OutboundBuffer] and flushed once the connection is established again.
  * @param location the host of the server
  * @property regnum the regnum instance
+ * @property codecs the names of the codecs offered to the server
  * @constructor constructs a new websocket client
  */
 class WebsocketImpl(
         location: URI,
-        val regnum: Regnum
+        val regnum: Regnum,
+        private val codecs: List<String> = PacketCodecs.names
 ) : WebSocketClient(location), Websocket {
 
+    companion object {
+        /**
+         * Maximal amount of payloads buffered while disconnected which can be evicted.
+         * @see OutboundBuffer
+         */
+        const val OUTBOUND_CAPACITY = 256
+    }
+
     private val log = Logger.getLogger()
+    // Reconnects have to be started outside of the websocket threads
+    private val supervisor = ReconnectSupervisor { reconnect() }
+    @Volatile
+    private var closed = false
+    // Whether HELLO got received on the current connection
+    @Volatile
+    private var established = false
+
+    /**
+     * Payloads which got sent while the connection was not established.
+     */
+    val outbound = OutboundBuffer(OUTBOUND_CAPACITY)
     override val packetProcessor: PacketProcessor = PacketProcessor()
     override lateinit var heart: Heart
+    override val wireTrace = WireTrace()
+
+    /**
+     * The payload protocol version negotiated with the server.
+     */
+    @Volatile
+    var protocolVersion = Payload.LEGACY_VERSION
+
+    /**
+     * The [PacketCodec] negotiated with the server.
+     */
+    @Volatile
+    var codec: PacketCodec = PacketCodecs.DEFAULT
+
+    /**
+     * The id of the current session received with HELLO or `null` if the server does not support resuming.
+     */
+    @Volatile
+    var sessionId: String? = null
+
+    /**
+     * Whether the current connection got authorized using RESUME.
+     */
+    @Volatile
+    var resuming = false
+        private set
 
     init {
         packetProcessor.registerPackets(
                 HelloHandler(regnum),
                 StartHandler(regnum),
-                AddHandler(regnum)
+                StartGrantHandler(regnum),
+                AddHandler(regnum),
+                RemoveHandler(regnum),
+                HeartBeatAckHandler(regnum)
         )
     }
 
@@ -63,28 +122,55 @@ class WebsocketImpl(
      * Websocket client
      * @param location the host of the server
      * @property regnum the regnum instance
+     * @param codecs the names of the codecs offered to the server
      * @constructor constructs a new websocket client
      */
-    constructor(location: String, regnum: Regnum) : this(URI(location), regnum)
+    constructor(location: String, regnum: Regnum, codecs: List<String> = PacketCodecs.names) : this(URI(location), regnum, codecs)
 
     override fun onOpen(handshakedata: ServerHandshake) {
         log.info("[WS] Websocket connection opened with message {}: \"{}\"", handshakedata.httpStatus, handshakedata.httpStatusMessage)
+        protocolVersion = Payload.LEGACY_VERSION
+        codec = PacketCodecs.DEFAULT
         authorize()
         callEvent(WebSocketConnectedEvent(regnum, this, handshakedata))
     }
 
     override fun onClose(code: Int, reason: String, remote: Boolean) {
         log.error("[WS] Websocket connection got closed with code {} for reason {} remote={}", code, reason, remote)
-        if (code == 1002) {
-            throw ConnectException("Could not connect to websocket")
+        established = false
+        if (isHeartInitialized()) {
+            (heart as HeartImpl).stop()
+        }
+        if (!closed) {
+            supervisor.schedule()
         }
         callEvent(WebSocketCloseEvent(regnum, this, code, reason, remote))
     }
 
     override fun onMessage(message: String) {
-        log.info("[WS] Websocket message received: {}", message)
-        packetProcessor.processMessage(message)
-        callEventAsync(WebSocketMessageEvent(regnum, this, message))
+        if (log.isDebugEnabled) {
+            log.debug("[WS] Websocket message of {} chars received", message.length)
+        }
+        val payload = Payload.fromJson(message) ?: return
+        if (wireTrace.enabled) {
+            wireTrace.record(WireTrace.Direction.INBOUND, WireTrace.SERVER, payload, message)
+        }
+        packetProcessor.processPayload(payload)
+        callEventAsync(WebSocketMessageEvent(regnum, this, message, payload))
+    }
+
+    override fun onMessage(bytes: ByteBuffer) {
+        val payload = try {
+            codec.decode(bytes)
+        } catch (e: IOException) {
+            log.warn("[WS] Could not decode binary message", e)
+            return
+        }
+        if (wireTrace.enabled) {
+            wireTrace.record(WireTrace.Direction.INBOUND, WireTrace.SERVER, payload)
+        }
+        packetProcessor.processPayload(payload)
+        callEventAsync(WebSocketMessageEvent(regnum, this, payload))
     }
 
     override fun onError(ex: Exception) {
@@ -99,16 +185,81 @@ class WebsocketImpl(
     }
 
     private fun authorize() {
+        val sessionId = sessionId
+        // Only nodes that still run their shards can resume
+        resuming = sessionId != null && (regnum as RegnumImpl).discordInitialized()
+        if (resuming) {
+            log.info("[WS] Sending RESUME")
+            write(Payload.of(ResumePacket(regnum.token, Payload.VERSION, codecs.toTypedArray(), sessionId), ResumePacket.IDENTIFIER))
+            return
+        }
         log.info("[WS] Sending IDENTIFY")
-        val identify = Payload.of(IdentifyPacket(regnum.token), IdentifyPacket.IDENTIFIER)
-        send(identify)
+        val identify = Payload.of(IdentifyPacket(regnum.token, Payload.VERSION, codecs.toTypedArray()), IdentifyPacket.IDENTIFIER)
+        write(identify)
     }
 
     override fun sendMessage(message: String) = this.send(message)
 
+    override fun send(payload: Payload) {
+        if (!established) {
+            buffer(payload)
+            return
+        }
+        try {
+            write(payload)
+        } catch (e: WebsocketNotConnectedException) {
+            buffer(payload)
+        }
+    }
+
+    private fun buffer(payload: Payload) {
+        // Heartbeats are bound to the connection they are sent on
+        if (payload.type != HeartBeatPacket.IDENTIFIER) {
+            outbound.offer(payload)
+        }
+    }
+
+    private fun write(payload: Payload) {
+        if (wireTrace.enabled) {
+            wireTrace.record(WireTrace.Direction.OUTBOUND, WireTrace.SERVER, payload)
+        }
+        val codec = codec
+        if (codec.binary) {
+            send(codec.encode(payload))
+        } else {
+            sendMessage(payload.toJson(protocolVersion))
+        }
+    }
+
     private fun callEventAsync(event: Event) = regnum.eventManager.fireEvent(event)
 
-    override fun close() = super.close()
+    /**
+     * Marks the connection as established after HELLO got received and handles the payloads buffered while disconnected.
+     * @param flush whether the buffered payloads should be sent or discarded because they belong to a lost session
+     */
+    fun established(flush: Boolean) {
+        established = true
+        supervisor.connected()
+        val payloads = outbound.drain()
+        if (!flush) {
+            log.info("[WS] Discarding {} payloads of the lost session", payloads.size)
+            return
+        }
+        if (payloads.isNotEmpty()) {
+            log.info("[WS] Flushing {} buffered payloads", payloads.size)
+        }
+        payloads.forEach(this::send)
+    }
+
+    override fun close() {
+        closed = true
+        established = false
+        supervisor.close()
+        if (isHeartInitialized()) {
+            (heart as HeartImpl).shutdown()
+        }
+        super.close()
+    }
 
     /**
      * Returns whether the [heart] is initialized or not.
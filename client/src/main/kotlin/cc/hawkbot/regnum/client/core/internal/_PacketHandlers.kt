@@ -21,18 +21,38 @@ package cc.hawkbot.regnum.client.core.internal
 
 import cc.hawkbot.regnum.client.Regnum
 import cc.hawkbot.regnum.client.core.discord.impl.DiscordImpl
+import cc.hawkbot.regnum.entities.packets.HeartBeatAckPacket
 import cc.hawkbot.regnum.entities.packets.HelloPacket
 import cc.hawkbot.regnum.entities.packets.Packet
 import cc.hawkbot.regnum.entities.packets.discord.AddPacket
+import cc.hawkbot.regnum.entities.packets.discord.RemovePacket
+import cc.hawkbot.regnum.entities.packets.discord.StartGrantPacket
 import cc.hawkbot.regnum.entities.packets.discord.StartPacket
 import cc.hawkbot.regnum.net.PacketHandler
+import cc.hawkbot.regnum.net.codec.PacketCodecs
 import kotlin.reflect.KClass
 
 sealed class ClientPacketHandler<T : Packet>(protected val regnum: Regnum, packetIdentifier: String, packetClass: KClass<T>) : PacketHandler<T>(packetIdentifier, packetClass)
 
 class HelloHandler(regnum: Regnum) : ClientPacketHandler<HelloPacket>(regnum, HelloPacket.IDENTIFIER, HelloPacket::class) {
     override fun processPacket(packet: HelloPacket) {
-        (regnum as RegnumImpl).websocket.heart = HeartImpl(regnum, packet)
+        val websocket = (regnum as RegnumImpl).websocket
+        if (packet.protocolVersion > 0) {
+            websocket.protocolVersion = packet.protocolVersion
+        }
+        websocket.codec = packet.codec?.let { PacketCodecs[it] } ?: PacketCodecs.DEFAULT
+        // Shard states buffered by a node which could not continue its session are outdated
+        val stale = !packet.isResumed && regnum.discordInitialized()
+        // A node which could not resume got its shards moved to other nodes
+        if (websocket.resuming && !packet.isResumed && regnum.discordInitialized()) {
+            regnum.discord.shutdown()
+        }
+        websocket.sessionId = packet.sessionId
+        if (!websocket.isHeartInitialized()) {
+            websocket.heart = HeartImpl(regnum)
+        }
+        (websocket.heart as HeartImpl).start(packet)
+        websocket.established(!stale)
         regnum.metricsSender.start()
     }
 }
@@ -40,16 +60,38 @@ class HelloHandler(regnum: Regnum) : ClientPacketHandler<HelloPacket>(regnum, He
 class StartHandler(regnum: Regnum) : ClientPacketHandler<StartPacket>(regnum, StartPacket.IDENTIFIER, StartPacket::class) {
     override fun processPacket(packet: StartPacket) {
         val regnumImpl = regnum as RegnumImpl
+        // The shards of the previous session might still be running
+        if (regnumImpl.discordInitialized()) {
+            regnumImpl.discord.shutdown()
+        }
         regnumImpl.discord = DiscordImpl(
                 regnum,
                 regnumImpl.shardManagerClass,
                 packet.token,
                 packet.shards,
-                packet.shardsTotal
+                packet.shardsTotal,
+                packet.isCoordinated
         )
     }
 }
 
+class StartGrantHandler(regnum: Regnum) : ClientPacketHandler<StartGrantPacket>(regnum, StartGrantPacket.IDENTIFIER, StartGrantPacket::class) {
+    override fun processPacket(packet: StartGrantPacket) = regnum.discord.shardManager.grantStart(packet.shard)
+}
+
 class AddHandler(regnum: Regnum) : ClientPacketHandler<AddPacket>(regnum, AddPacket.IDENTIFIER, AddPacket::class) {
     override fun processPacket(packet: AddPacket) = regnum.discord.addShards(packet.shards)
 }
+
+class RemoveHandler(regnum: Regnum) : ClientPacketHandler<RemovePacket>(regnum, RemovePacket.IDENTIFIER, RemovePacket::class) {
+    override fun processPacket(packet: RemovePacket) = regnum.discord.removeShards(packet.shards)
+}
+
+class HeartBeatAckHandler(regnum: Regnum) : ClientPacketHandler<HeartBeatAckPacket>(regnum, HeartBeatAckPacket.IDENTIFIER, HeartBeatAckPacket::class) {
+    override fun processPacket(packet: HeartBeatAckPacket) {
+        val websocket = (regnum as RegnumImpl).websocket
+        if (websocket.isHeartInitialized()) {
+            (websocket.heart as HeartImpl).acknowledge(packet)
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.client.event
+
+import cc.hawkbot.regnum.client.event.impl.EventTask
+import cc.hawkbot.regnum.client.events.Event
+import cc.hawkbot.regnum.util.DefaultThreadFactory
+import cc.hawkbot.regnum.util.KeyedSerialExecutor
+import cc.hawkbot.regnum.util.PartitionedExecutorService
+import cc.hawkbot.regnum.util.VirtualThreads
+import net.dv8tion.jda.api.events.GenericEvent
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent
+import java.util.concurrent.ExecutorService
+import java.util.function.Function
+
+/**
+ * Factories for executors that can be used by event managers.
+ * @see cc.hawkbot.regnum.client.RegnumBuilder.setEventExecutor
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+object EventExecutors {
+
+    /**
+     * The default capacity of the queue of a lane.
+     */
+    const val DEFAULT_CAPACITY = 4096
+
+    /**
+     * Partition key function which keeps events of a guild in order, other Discord events are ordered per shard and
+     * Regnum events are ordered among each other.
+     */
+    @JvmField
+    val GUILD_OR_SHARD = Function<Any, Any?> {
+        when (it) {
+            is GenericGuildEvent -> it.guild.idLong
+            is GenericEvent -> it.jda.shardInfo.shardId
+            is Event -> it.regnum
+            else -> null
+        }
+    }
+
+    /**
+     * Creates an executor which calls listeners on virtual threads, so listeners can block without starving other
+     * listeners. Falls back to a cached thread pool on runtimes without virtual threads.
+     * Events with the same partition key are handled one after another in the order they were fired, events without a
+     * key run concurrently and in no particular order.
+     * @param key function returning the partition key of an event or `null` if it does not need to be ordered
+     * @return the executor
+     * @see VirtualThreads
+     * @see KeyedSerialExecutor
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun virtual(key: Function<Any, Any?> = GUILD_OR_SHARD): ExecutorService = KeyedSerialExecutor(
+            VirtualThreads.newThreadPerTaskExecutor("EventManager"),
+            Function { task -> (task as? EventTask)?.event?.let { key.apply(it) } }
+    )
+
+    /**
+     * Creates an executor which calls listeners on a fixed amount of single threaded lanes.
+     * Events with the same partition key are always handled by the same lane in the order they were fired.
+     * Queue depths can be retrieved using [PartitionedExecutorService.queueDepths] and are reported in the node metrics.
+     * @param lanes the amount of lanes
+     * @param capacity the capacity of the queue of every lane
+     * @param policy the [PartitionedExecutorService.OverflowPolicy] used if a lane is full
+     * @param key function returning the partition key of an event or `null` to distribute it round robin
+     * @return the executor
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun partitioned(
+            lanes: Int = Runtime.getRuntime().availableProcessors(),
+            capacity: Int = DEFAULT_CAPACITY,
+            policy: PartitionedExecutorService.OverflowPolicy = PartitionedExecutorService.OverflowPolicy.BLOCK,
+            key: Function<Any, Any?> = GUILD_OR_SHARD
+    ): PartitionedExecutorService {
+        return PartitionedExecutorService(
+                lanes,
+                capacity,
+                policy,
+                Function { task -> (task as? EventTask)?.event?.let { key.apply(it) } },
+                DefaultThreadFactory("EventLane")
+        )
+    }
+}
@@ -26,7 +26,11 @@ import java.util.concurrent.ExecutorService
 abstract class AbstractEventManager : EventManager {
 
     private val log = Logger.getLogger(EventManager::class.java)
-    abstract val executor: ExecutorService
+
+    /**
+     * The executor listeners are called on, tasks are submitted as [EventTask]s.
+     */
+    abstract var executor: ExecutorService
     abstract val listeners: MutableList<Any>
     override val registeredListeners: List<Any>
         // Make that list immutable
@@ -40,13 +44,13 @@ abstract class AbstractEventManager : EventManager {
         listeners.remove(listener)
     }
 
-    fun fireEvent(action: () -> Unit, errorProcessor: (Throwable) -> Throwable = { it }) {
-        executor.execute {
+    fun fireEvent(event: Any, action: () -> Unit, errorProcessor: (Throwable) -> Throwable = { it }) {
+        executor.execute(EventTask(event, Runnable {
             try {
                 action()
             } catch (e: Throwable) {
                 log.error("[EventManager] One of the event listeners threw an error", errorProcessor(e))
             }
-        }
+        }))
     }
 }
\ No newline at end of file
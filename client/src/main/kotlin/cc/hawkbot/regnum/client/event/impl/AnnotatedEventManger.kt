@@ -19,94 +19,130 @@
 
 package cc.hawkbot.regnum.client.event.impl
 
+import cc.hawkbot.regnum.client.event.EventManager
 import cc.hawkbot.regnum.client.event.EventSubscriber
 import cc.hawkbot.regnum.util.DefaultThreadFactory
-import java.lang.reflect.InvocationTargetException
+import cc.hawkbot.regnum.util.TypeHierarchy
+import cc.hawkbot.regnum.util.logging.Logger
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
-import kotlin.reflect.KClass
-import kotlin.reflect.KFunction
-import kotlin.reflect.full.declaredFunctions
-import kotlin.reflect.full.findAnnotation
-import kotlin.reflect.full.superclasses
-import kotlin.reflect.full.valueParameters
-import kotlin.reflect.jvm.isAccessible
-import kotlin.reflect.jvm.jvmErasure
 
+/**
+ * Event manager which calls all functions annotated with [EventSubscriber] of its listeners.
+ * The subscriber functions of a listener class are resolved and compiled into [MethodHandle]s once, listeners are
+ * indexed by the event type of their subscribers and the handlers of each fired event class, including the handlers
+ * of all of its super classes and interfaces, are cached until the listeners change.
+ */
 class AnnotatedEventManger(
-        override val executor: ExecutorService = Executors.newCachedThreadPool(DefaultThreadFactory("EventManager"))
+        override var executor: ExecutorService = Executors.newCachedThreadPool(DefaultThreadFactory("EventManager"))
 ) : AbstractEventManager() {
+
+    companion object {
+        // Type of the invokeExact call site in InstanceFunction
+        private val INVOKER_TYPE = MethodType.methodType(Any::class.java, Any::class.java, Any::class.java)
+
+        // Subscriber functions per listener class
+        private val SUBSCRIBERS = object : ClassValue<Array<Subscriber>>() {
+            override fun computeValue(type: Class<*>): Array<Subscriber> {
+                val lookup = MethodHandles.lookup()
+                // javac copies the annotation onto bridge methods, which would receive events of any type
+                return type.declaredMethods.filter { !it.isBridge && !it.isSynthetic && it.isAnnotationPresent(EventSubscriber::class.java) }
+                        .map {
+                            if (it.parameterCount != 1) {
+                                throw IllegalArgumentException("EventSubscriber functions must have exactly one parameter (the event)")
+                            }
+                            it.isAccessible = true
+                            Subscriber(it.parameterTypes.first(), lookup.unreflect(it).asType(INVOKER_TYPE))
+                        }
+                        .toTypedArray()
+            }
+        }
+    }
+
+    private val log = Logger.getLogger(EventManager::class.java)
     override val listeners = CopyOnWriteArrayList<Any>()
-    private val functions = ConcurrentHashMap<Any, MutableList<InstanceFunction>>()
+    // Listener functions by the event type they subscribe to
+    private val functions = ConcurrentHashMap<Class<*>, CopyOnWriteArrayList<InstanceFunction>>()
+    // Resolved handlers by fired event class, replaced whenever listeners change
+    @Volatile
+    private var handlers = ConcurrentHashMap<Class<*>, Array<InstanceFunction>>()
     override val registeredListeners: List<Any>
         // Make that list immutable
         get() = listeners.toList()
 
     override fun register(listener: Any) {
+        index(listener)
         super.register(listener)
-        updateMethods()
-
+        invalidate()
     }
 
-    override fun register(vararg listeners: Any) {
-        this.listeners.addAll(listeners)
-        updateMethods()
-    }
+    override fun register(vararg listeners: Any) = register(listeners.asList())
 
     override fun register(listeners: Collection<Any>) {
-        if (this.listeners.addAll(listeners)) {
-            updateMethods()
+        if (listeners.isEmpty()) {
+            return
         }
+        listeners.forEach(this::index)
+        this.listeners.addAll(listeners)
+        invalidate()
     }
 
     override fun unregister(listener: Any) {
-        super.unregister(listener)
-        updateMethods()
-
+        if (!listeners.remove(listener)) {
+            return
+        }
+        SUBSCRIBERS.get(listener.javaClass).forEach { subscriber ->
+            // Only remove one function per subscriber in case the listener got registered multiple times
+            functions[subscriber.eventType]?.let { functions ->
+                functions.firstOrNull { it.instance === listener && it.handle === subscriber.handle }?.let { functions.remove(it) }
+            }
+        }
+        invalidate()
     }
 
-    private fun updateMethods() {
-        functions.clear()
-        listeners.forEach { it ->
-            it::class.declaredFunctions.filterNot { it.findAnnotation<EventSubscriber>() == null }
-                    .forEach { function ->
-                        val parameters = function.valueParameters
-                        if (parameters.isEmpty() || parameters.size > 1) {
-                            throw IllegalArgumentException("EventSubscriber functions must have exactly one parameter (the event)")
-                        }
-                        val eventClass = parameters.first().type.jvmErasure
-                        //println("REG $function")
-                        val instanceFunction = InstanceFunction(it, function)
-                        val functions = functions[eventClass]
-                        if (functions == null) {
-                            this.functions[eventClass] = mutableListOf(instanceFunction)
-                        } else {
-                            functions += instanceFunction
-                        }
-                    }
+    private fun index(listener: Any) {
+        SUBSCRIBERS.get(listener.javaClass).forEach {
+            functions.computeIfAbsent(it.eventType) { CopyOnWriteArrayList() } += InstanceFunction(listener, it.handle)
         }
     }
 
+    private fun invalidate() {
+        // Replaced instead of cleared so handlers resolved concurrently can not end up in the new cache
+        handlers = ConcurrentHashMap()
+    }
+
+    private fun resolve(eventClass: Class<*>): Array<InstanceFunction> {
+        // Super classes and interfaces, so listeners for any super type of the event get called
+        return TypeHierarchy.of(eventClass).flatMap { functions[it] ?: emptyList<InstanceFunction>() }.toTypedArray()
+    }
+
     override fun fireEvent(event: Any) {
-        var eventClass: KClass<*>? = event::class
-        while (eventClass != null) {
-            val functions = this.functions[eventClass] ?: return
-            fireEvent({
-                functions.forEach {
+        val handlers = handlers.computeIfAbsent(event.javaClass, this::resolve)
+        if (handlers.isEmpty()) {
+            return
+        }
+        fireEvent(event, {
+            handlers.forEach {
+                try {
                     it.call(event)
+                } catch (e: Throwable) {
+                    log.error("[EventManager] One of the event listeners threw an error", e)
                 }
-            }, { InvocationTargetException(it) })
-            eventClass = if (eventClass == Any::class) null else eventClass.superclasses.first()
-        }
-
+            }
+        })
     }
 
-    private data class InstanceFunction(private val instance: Any, private val function: KFunction<*>) {
-        fun call(vararg parameters: Any?) {
-            function.isAccessible = true
-            function.call(instance, *parameters)
+    private class Subscriber(val eventType: Class<*>, val handle: MethodHandle)
+
+    private class InstanceFunction(val instance: Any, val handle: MethodHandle) {
+        fun call(event: Any) {
+            // The handle got adapted to the call site type once, the cast pins the call site return type to Object
+            handle.invokeExact(instance, event) as Any?
         }
     }
-}
\ No newline at end of file
+}
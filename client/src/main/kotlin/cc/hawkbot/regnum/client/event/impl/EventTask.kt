@@ -0,0 +1,30 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.client.event.impl
+
+/**
+ * Task which calls the listeners of an [event].
+ * Allows executors like [cc.hawkbot.regnum.util.PartitionedExecutorService] to schedule tasks by their event.
+ * @property event the event
+ * @param action the action calling the listeners
+ */
+class EventTask(val event: Any, private val action: Runnable) : Runnable {
+    override fun run() = action.run()
+}
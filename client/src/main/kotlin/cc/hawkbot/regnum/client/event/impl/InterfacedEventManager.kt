@@ -19,17 +19,42 @@
 
 package cc.hawkbot.regnum.client.event.impl
 
+import cc.hawkbot.regnum.client.event.EventManager
 import cc.hawkbot.regnum.util.DefaultThreadFactory
 import cc.hawkbot.regnum.util.logging.Logger
 import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
 
-class InterfacedEventManager(
-        override val executor: ExecutorService = Executors.newCachedThreadPool(DefaultThreadFactory("EventListeningPool"))
+/**
+ * Event manager which calls [EventListener.onEvent] of all of its listeners.
+ * @property executor the executor the listeners are called on
+ * @property dispatchMode the [DispatchMode]
+ */
+class InterfacedEventManager @JvmOverloads constructor(
+        override var executor: ExecutorService = Executors.newCachedThreadPool(DefaultThreadFactory("EventListeningPool")),
+        val dispatchMode: DispatchMode = DispatchMode.BATCHED
 ) : AbstractEventManager() {
 
+    /**
+     * How listeners are submitted to the [executor].
+     */
+    enum class DispatchMode {
+        /**
+         * Submits a separate task for every listener, listeners of the same event may run concurrently.
+         */
+        PER_LISTENER,
+        /**
+         * Submits one task per event which calls all listeners one after another.
+         */
+        BATCHED
+    }
+
+    private val log = Logger.getLogger(EventManager::class.java)
     override val listeners = CopyOnWriteArrayList<Any>()
+    // Snapshot of the listeners which is iterated without copying when firing events
+    @Volatile
+    private var snapshot = emptyArray<EventListener>()
     override val registeredListeners: List<Any>
         // Make that list immutable
         get() = listeners.toList()
@@ -38,21 +63,46 @@ class InterfacedEventManager(
         if (listener !is EventListener) {
             throw IllegalArgumentException("Interfaced event manager only accepts EventListener implementing classes")
         }
-        super.register(listener)
+        synchronized(listeners) {
+            super.register(listener)
+            updateSnapshot()
+        }
     }
 
     override fun unregister(listener: Any) {
         if (listener !is EventListener) {
             throw IllegalArgumentException("Interfaced event manager only accepts EventListener implementing classes")
         }
-        super.unregister(listener)
+        synchronized(listeners) {
+            super.unregister(listener)
+            updateSnapshot()
+        }
+    }
+
+    private fun updateSnapshot() {
+        snapshot = Array(listeners.size) { listeners[it] as EventListener }
     }
 
     override fun fireEvent(event: Any) {
-        registeredListeners.asSequence().forEach {
-            fireEvent {
-                (it as EventListener).onEvent(event)
+        val listeners = snapshot
+        if (listeners.isEmpty()) {
+            return
+        }
+        when (dispatchMode) {
+            DispatchMode.PER_LISTENER -> listeners.forEach {
+                fireEvent(event, {
+                    it.onEvent(event)
+                })
             }
+            DispatchMode.BATCHED -> fireEvent(event, {
+                for (listener in listeners) {
+                    try {
+                        listener.onEvent(event)
+                    } catch (e: Throwable) {
+                        log.error("[EventManager] One of the event listeners threw an error", e)
+                    }
+                }
+            })
         }
     }
-}
\ No newline at end of file
+}
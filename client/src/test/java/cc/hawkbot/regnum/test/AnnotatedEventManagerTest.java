@@ -0,0 +1,147 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.client.event.EventSubscriber;
+import cc.hawkbot.regnum.client.event.impl.AnnotatedEventManger;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+public class AnnotatedEventManagerTest {
+
+    @Test
+    public void superTypes() throws ExecutionException, InterruptedException {
+        var listener = new Listener();
+        fire(listener, new ReadyEvent());
+        assertEquals(List.of("ready", "generic", "event", "object", "update"), listener.calls);
+    }
+
+    @Test
+    public void intermediateTypeWithoutListeners() throws ExecutionException, InterruptedException {
+        // SubReadyEvent has no listener which made the old walk stop before reaching the super types
+        var listener = new Listener();
+        fire(listener, new SubReadyEvent());
+        assertEquals(List.of("ready", "generic", "event", "object", "update"), listener.calls);
+    }
+
+    @Test
+    public void unregister() throws ExecutionException, InterruptedException {
+        var executor = Executors.newSingleThreadExecutor();
+        var manager = new AnnotatedEventManger(executor);
+        var listener = new Listener();
+        manager.register(listener);
+        manager.unregister(listener);
+        manager.fireEvent(new ReadyEvent());
+        await(executor);
+        assertEquals(List.of(), listener.calls);
+    }
+
+    @Test
+    public void bridgeMethods() throws ExecutionException, InterruptedException {
+        // The bridge onEvent(Object) carries the annotation too and would receive every event
+        var listener = new GenericListener();
+        fire(listener, new ReadyEvent());
+        fire(listener, new Event());
+        assertEquals(List.of("ready"), listener.calls);
+    }
+
+    private static void fire(Object listener, Object event) throws ExecutionException, InterruptedException {
+        var executor = Executors.newSingleThreadExecutor();
+        var manager = new AnnotatedEventManger(executor);
+        manager.register(listener);
+        manager.fireEvent(event);
+        await(executor);
+    }
+
+    private static void await(ExecutorService executor) throws ExecutionException, InterruptedException {
+        executor.submit(() -> {
+        }).get();
+        executor.shutdown();
+    }
+
+    private interface Handler<T> {
+        void onEvent(T event);
+    }
+
+    private static class GenericListener implements Handler<ReadyEvent> {
+
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        @EventSubscriber
+        public void onEvent(ReadyEvent event) {
+            calls.add("ready");
+        }
+    }
+
+    private interface UpdateEvent {
+    }
+
+    private static class Event {
+    }
+
+    private static class GenericEvent extends Event {
+    }
+
+    private static class ReadyEvent extends GenericEvent implements UpdateEvent {
+    }
+
+    private static class SubReadyEvent extends ReadyEvent {
+    }
+
+    @SuppressWarnings("unused")
+    private static class Listener {
+
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        @EventSubscriber
+        private void onReady(ReadyEvent event) {
+            calls.add("ready");
+        }
+
+        @EventSubscriber
+        private void onGeneric(GenericEvent event) {
+            calls.add("generic");
+        }
+
+        @EventSubscriber
+        private void onEvent(Event event) {
+            calls.add("event");
+        }
+
+        @EventSubscriber
+        private void onAny(Object event) {
+            calls.add("object");
+        }
+
+        @EventSubscriber
+        private void onUpdate(UpdateEvent event) {
+            calls.add("update");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.client.core.internal.OutboundBuffer;
+import cc.hawkbot.regnum.entities.Payload;
+import cc.hawkbot.regnum.entities.packets.MetricsPacket;
+import cc.hawkbot.regnum.entities.packets.Packet;
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket;
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket.Status;
+import cc.hawkbot.regnum.entities.packets.discord.StartRequestPacket;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class OutboundBufferTest {
+
+    @Test
+    public void drainKeepsOrder() {
+        var buffer = new OutboundBuffer(4);
+        buffer.offer(custom(1));
+        buffer.offer(custom(2));
+        assertEquals(List.of("CUSTOM 1", "CUSTOM 2"), describe(buffer.drain()));
+        assertEquals(0, buffer.size());
+        assertEquals(List.of(), buffer.drain());
+    }
+
+    @Test
+    public void overwritesOldestWhenFull() {
+        var buffer = new OutboundBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(custom(i));
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(2, buffer.getDropped());
+        assertEquals(List.of("CUSTOM 2", "CUSTOM 3", "CUSTOM 4"), describe(buffer.drain()));
+    }
+
+    @Test
+    public void shardPayloadsAreNeverEvicted() {
+        var buffer = new OutboundBuffer(2);
+        for (int shard = 0; shard < 300; shard++) {
+            buffer.offer(Payload.of(new StartRequestPacket(shard), StartRequestPacket.IDENTIFIER));
+        }
+        buffer.offer(status(7, Status.DISCONNECTED));
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(metrics(i));
+            buffer.offer(custom(i));
+        }
+        var payloads = describe(buffer.drain());
+        assertEquals(304, payloads.size());
+        assertEquals("START_REQUEST 0", payloads.get(0));
+        assertEquals("START_REQUEST 299", payloads.get(299));
+        assertEquals(List.of("SHARD_STATUS 7 DISCONNECTED", "CUSTOM 8", "METRICS 9", "CUSTOM 9"), payloads.subList(300, 304));
+    }
+
+    @Test
+    public void coalescesPerShard() {
+        var buffer = new OutboundBuffer(2);
+        buffer.offer(Payload.of(new StartRequestPacket(1), StartRequestPacket.IDENTIFIER));
+        buffer.offer(status(1, Status.CONNECTING));
+        buffer.offer(status(2, Status.READY));
+        buffer.offer(Payload.of(new StartRequestPacket(1), StartRequestPacket.IDENTIFIER));
+        buffer.offer(status(1, Status.DISCONNECTED));
+        assertEquals(List.of("START_REQUEST 1", "SHARD_STATUS 2 READY", "SHARD_STATUS 1 DISCONNECTED"), describe(buffer.drain()));
+        assertEquals(2, buffer.getDropped());
+    }
+
+    private Payload custom(int id) {
+        return Payload.of(new CustomPacket(id), CustomPacket.IDENTIFIER);
+    }
+
+    private Payload metrics(long guilds) {
+        return Payload.of(new MetricsPacket(0, 0, 0, 0, 0, 0, guilds, 0), MetricsPacket.IDENTIFIER);
+    }
+
+    private Payload status(int shard, Status status) {
+        return Payload.of(new ShardStatusPacket(shard, status), ShardStatusPacket.IDENTIFIER);
+    }
+
+    private List<String> describe(List<Payload> payloads) {
+        return payloads.stream().map(payload -> {
+            switch (payload.getType()) {
+                case StartRequestPacket.IDENTIFIER:
+                    return payload.getType() + " " + payload.getPacket(StartRequestPacket.class).getShard();
+                case ShardStatusPacket.IDENTIFIER:
+                    var status = payload.getPacket(ShardStatusPacket.class);
+                    return payload.getType() + " " + status.getShard() + " " + status.getStatus();
+                case MetricsPacket.IDENTIFIER:
+                    return payload.getType() + " " + payload.getPacket(MetricsPacket.class).getGuilds();
+                default:
+                    return payload.getType() + " " + payload.getPacket(CustomPacket.class).id;
+            }
+        }).collect(Collectors.toList());
+    }
+
+    private static class CustomPacket implements Packet {
+
+        static final String IDENTIFIER = "CUSTOM";
+
+        private final int id;
+
+        CustomPacket(int id) {
+            this.id = id;
+        }
+    }
+}
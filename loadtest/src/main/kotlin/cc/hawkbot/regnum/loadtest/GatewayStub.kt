@@ -0,0 +1,65 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.loadtest
+
+import cc.hawkbot.regnum.entities.json.Json
+import io.javalin.Javalin
+import java.io.Closeable
+
+/**
+ * Local stand-in for Discord's `/gateway/bot` endpoint which is used by the load balancer to discover the shard count.
+ * @param port the port the stub listens on
+ * @param shards the shard count which is recommended to the server
+ * @param maxConcurrency the amount of shards which may identify at once
+ * @constructor Starts a new gateway stub
+ */
+class GatewayStub(port: Int, shards: Int, maxConcurrency: Int) : Closeable {
+
+    companion object {
+        private const val PATH = "/api/gateway/bot"
+    }
+
+    private val javalin = Javalin.create().start(port)
+
+    /**
+     * The url of the endpoint which has to be configured as `discord.gateway_url`.
+     */
+    val url = "http://localhost:$port$PATH"
+
+    init {
+        val body = Json.toJson(mapOf(
+                "url" to "wss://gateway.discord.gg",
+                "shards" to shards,
+                "session_start_limit" to mapOf(
+                        "total" to 1000,
+                        "remaining" to 1000,
+                        "reset_after" to 0,
+                        "max_concurrency" to maxConcurrency
+                )
+        ))
+        javalin.get(PATH) {
+            it.contentType("application/json").result(body)
+        }
+    }
+
+    override fun close() {
+        javalin.stop()
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.loadtest
+
+import cc.hawkbot.regnum.server.core.internal.ServerImpl
+import cc.hawkbot.regnum.util.DefaultThreadFactory
+import org.apache.commons.cli.DefaultParser
+import org.apache.commons.cli.Option
+import org.apache.commons.cli.Options
+import org.apache.logging.log4j.Level
+import org.apache.logging.log4j.core.config.ConfigurationSource
+import org.apache.logging.log4j.core.config.Configurator
+import java.net.URI
+import java.net.http.HttpClient
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import kotlin.system.exitProcess
+
+/**
+ * Settings of a load test.
+ * @property nodes the amount of simulated nodes
+ * @property shards the shard count returned by the gateway stub
+ * @property duration the duration of the test in seconds
+ * @property rampUp the time in seconds over which the nodes connect
+ * @property heartbeat the heartbeat interval in seconds
+ * @property metricsInterval the interval in seconds in which nodes send metrics
+ * @property churnInterval the interval in seconds in which a random node disconnects, 0 to disable churn
+ * @property reconnectDelay the time in seconds after which a disconnected node reconnects
+ * @property balanceTimeout the time in seconds the server waits for nodes before balancing
+ * @property port the port of the server
+ * @property gatewayPort the port of the gateway stub
+ * @property maxConcurrency the identify concurrency returned by the gateway stub
+ */
+data class LoadTestSettings(
+        val nodes: Int,
+        val shards: Int,
+        val duration: Long,
+        val rampUp: Long,
+        val heartbeat: Long,
+        val metricsInterval: Long,
+        val churnInterval: Long,
+        val reconnectDelay: Long,
+        val balanceTimeout: Long,
+        val port: Int,
+        val gatewayPort: Int,
+        val maxConcurrency: Int
+)
+
+/**
+ * Starts a [ServerImpl] without Discord bot against a [GatewayStub] and connects [SimulatedNode]s to it.
+ * @param settings the settings of the load test
+ */
+class LoadTest(private val settings: LoadTestSettings) {
+
+    companion object {
+        private const val TOKEN = "REGNUM-LOAD-TEST"
+    }
+
+    private val stats = LoadTestStats(settings.nodes)
+    private val sampler = ResourceSampler()
+
+    /**
+     * Runs the load test and prints a report once it's done.
+     */
+    fun run() {
+        val directory = Files.createTempDirectory("regnum-loadtest")
+        val gateway = GatewayStub(settings.gatewayPort, settings.shards, settings.maxConcurrency)
+        val scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), DefaultThreadFactory("LoadTest"))
+        scheduler.scheduleAtFixedRate(sampler::sample, 0, 1, TimeUnit.SECONDS)
+
+        val launchedAt = System.nanoTime()
+        ServerImpl(System.currentTimeMillis(), false, true, writeConfig(directory, gateway.url).toString())
+        println("Server started in ${TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launchedAt)}ms")
+
+        val httpClient = HttpClient.newHttpClient()
+        val location = URI("ws://localhost:${settings.port}/ws")
+        val nodes = List(settings.nodes) {
+            SimulatedNode(it, location, TOKEN, httpClient, scheduler, settings.metricsInterval, stats)
+        }
+        val rampUp = TimeUnit.SECONDS.toMillis(settings.rampUp)
+        nodes.forEachIndexed { index, node ->
+            scheduler.schedule({ node.connect() }, rampUp * index / nodes.size, TimeUnit.MILLISECONDS)
+        }
+        if (settings.churnInterval > 0) {
+            scheduler.scheduleAtFixedRate({ churn(nodes, scheduler) }, settings.rampUp + settings.churnInterval, settings.churnInterval, TimeUnit.SECONDS)
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(settings.duration))
+        sampler.sample()
+        report()
+        nodes.forEach { it.disconnect() }
+        scheduler.shutdownNow()
+        gateway.close()
+    }
+
+    private fun churn(nodes: List<SimulatedNode>, scheduler: ScheduledExecutorService) {
+        val connected = nodes.filter { it.connected }
+        if (connected.isEmpty()) {
+            return
+        }
+        val node = connected[ThreadLocalRandom.current().nextInt(connected.size)]
+        if (node.shards.isNotEmpty()) {
+            stats.rebalanceRequested()
+        }
+        node.disconnect()
+        scheduler.schedule({ node.connect() }, settings.reconnectDelay, TimeUnit.SECONDS)
+    }
+
+    private fun writeConfig(directory: Path, gatewayUrl: String): Path {
+        val file = directory.resolve("server.yml")
+        Files.write(file, listOf(
+                "socket:",
+                "  port: ${settings.port}",
+                "  token: '$TOKEN'",
+                "  heartbeat: ${settings.heartbeat}",
+                "discord:",
+                "  gateway_url: '$gatewayUrl'",
+                "general:",
+                "  load_balance_timeout: ${settings.balanceTimeout}",
+                "  plugins_directory: '${directory.resolve("plugins")}/'"
+        ))
+        return file
+    }
+
+    private fun report() {
+        val balancing = stats.balancingTime()
+        println("Regnum load test: ${settings.nodes} nodes, ${settings.shards} shards, ${settings.duration}s")
+        println("Connections    connects=${stats.connects}, disconnects=${stats.disconnects}, errors=${stats.errors}, starts=${stats.starts}, grants=${stats.grants}")
+        println("Authorization  ${stats.authorization.snapshot()}")
+        println("Heartbeat RTT  ${stats.heartbeat.snapshot()}")
+        if (balancing < 0) {
+            println("Balancing      n/a (${stats.startedNodes()} of ${settings.nodes} nodes started)")
+        } else {
+            println("Balancing      ${TimeUnit.NANOSECONDS.toMillis(balancing)}ms after the last node got authorized")
+        }
+        println("Rebalancing    ${stats.rebalancing.snapshot()}")
+        println("Process CPU    ${sampler.cpu()}")
+        println("Process heap   ${sampler.heap()}")
+    }
+}
+
+/**
+ * Load test main function.
+ * @param args the program arguments
+ */
+fun main(args: Array<String>) {
+    val options = Options()
+            .addOption(option("n", "nodes", "Amount of simulated nodes"))
+            .addOption(option("s", "shards", "Shard count returned by the gateway stub, defaults to the amount of nodes"))
+            .addOption(option("d", "duration", "Duration of the test in seconds"))
+            .addOption(option("r", "ramp-up", "Seconds over which the nodes connect"))
+            .addOption(option("hb", "heartbeat", "Heartbeat interval in seconds"))
+            .addOption(option("m", "metrics", "Interval in seconds in which nodes send metrics"))
+            .addOption(option("c", "churn", "Interval in seconds in which a random node disconnects, 0 to disable"))
+            .addOption(option("rc", "reconnect", "Seconds after which disconnected nodes reconnect"))
+            .addOption(option("b", "balance-timeout", "Seconds the server waits for nodes before balancing"))
+            .addOption(option("p", "port", "Port of the server"))
+            .addOption(option("gp", "gateway-port", "Port of the gateway stub"))
+            .addOption(option("mc", "max-concurrency", "Identify concurrency returned by the gateway stub"))
+            .addOption(option("L", "log-level", "Logging level of the server"))
+
+    val cmd = DefaultParser().parse(options, args)
+
+    Configurator.setRootLevel(Level.toLevel(cmd.getOptionValue("L"), Level.WARN))
+    Configurator.initialize(ClassLoader.getSystemClassLoader(), ConfigurationSource(Thread.currentThread().contextClassLoader.getResourceAsStream("log4j2.xml")))
+
+    val nodes = cmd.getOptionValue("n", "100").toInt()
+    val settings = LoadTestSettings(
+            nodes = nodes,
+            shards = cmd.getOptionValue("s", nodes.toString()).toInt(),
+            duration = cmd.getOptionValue("d", "60").toLong(),
+            rampUp = cmd.getOptionValue("r", "10").toLong(),
+            heartbeat = cmd.getOptionValue("hb", "5").toLong(),
+            metricsInterval = cmd.getOptionValue("m", "10").toLong(),
+            churnInterval = cmd.getOptionValue("c", "0").toLong(),
+            reconnectDelay = cmd.getOptionValue("rc", "5").toLong(),
+            balanceTimeout = cmd.getOptionValue("b", "30").toLong(),
+            port = cmd.getOptionValue("p", "7000").toInt(),
+            gatewayPort = cmd.getOptionValue("gp", "7001").toInt(),
+            maxConcurrency = cmd.getOptionValue("mc", "16").toInt()
+    )
+    LoadTest(settings).run()
+    // The server is closed by its shutdown hook
+    exitProcess(0)
+}
+
+private fun option(name: String, longName: String, description: String): Option {
+    return Option.builder(name)
+            .longOpt(longName)
+            .hasArg()
+            .desc(description)
+            .build()
+}
@@ -0,0 +1,130 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.loadtest
+
+import cc.hawkbot.regnum.util.LatencyRecorder
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Statistics collected by all [SimulatedNode]s of a load test.
+ * @param nodes the amount of simulated nodes
+ */
+class LoadTestStats(private val nodes: Int) {
+
+    companion object {
+        private const val SAMPLES = 8192
+    }
+
+    /**
+     * Time between opening the connection and receiving HELLO.
+     */
+    val authorization = LatencyRecorder(SAMPLES)
+
+    /**
+     * Time between sending a heartbeat and receiving its acknowledgement.
+     */
+    val heartbeat = LatencyRecorder(SAMPLES)
+
+    /**
+     * Time between disconnecting a node and the server starting its shards on another node.
+     */
+    val rebalancing = LatencyRecorder(SAMPLES)
+
+    /**
+     * Opened connections.
+     */
+    val connects = AtomicLong()
+
+    /**
+     * Connections closed by the server or the network.
+     */
+    val disconnects = AtomicLong()
+
+    /**
+     * Failed connection attempts and websocket errors.
+     */
+    val errors = AtomicLong()
+
+    /**
+     * Received START packets.
+     */
+    val starts = AtomicLong()
+
+    /**
+     * Received START_GRANT packets.
+     */
+    val grants = AtomicLong()
+
+    private val startedNodes = AtomicInteger()
+    private val lastAuthorization = AtomicLong()
+    private val pendingRebalance = AtomicLong()
+    @Volatile
+    private var balancedAt = 0L
+
+    /**
+     * Records that a node received HELLO.
+     * @param connectedAt the [System.nanoTime] at which the node started connecting
+     */
+    fun authorized(connectedAt: Long) {
+        val now = System.nanoTime()
+        authorization.record(now - connectedAt)
+        lastAuthorization.accumulateAndGet(now, Math::max)
+    }
+
+    /**
+     * Records that a node received a START packet.
+     * @param first whether it's the first START packet the node received
+     */
+    fun started(first: Boolean) {
+        val now = System.nanoTime()
+        starts.incrementAndGet()
+        if (first && startedNodes.incrementAndGet() == nodes) {
+            balancedAt = now
+        }
+        val disconnectedAt = pendingRebalance.getAndSet(0)
+        if (disconnectedAt != 0L) {
+            rebalancing.record(now - disconnectedAt)
+        }
+    }
+
+    /**
+     * Records that a node got disconnected on purpose so the next START packet completes a rebalance.
+     */
+    fun rebalanceRequested() {
+        pendingRebalance.compareAndSet(0, System.nanoTime())
+    }
+
+    /**
+     * Returns the amount of nodes which received at least one START packet.
+     * @return the amount of started nodes
+     */
+    fun startedNodes() = startedNodes.get()
+
+    /**
+     * Returns the nanoseconds between the last node receiving HELLO and all nodes receiving their shards or -1 if not
+     * all nodes got started.
+     * @return the balancing time
+     */
+    fun balancingTime(): Long {
+        val balancedAt = balancedAt
+        return if (balancedAt == 0L) -1 else balancedAt - lastAuthorization.get()
+    }
+}
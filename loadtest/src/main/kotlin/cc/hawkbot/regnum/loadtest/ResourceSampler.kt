@@ -0,0 +1,74 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.loadtest
+
+import java.lang.management.ManagementFactory
+
+/**
+ * Samples the CPU load and heap usage of the current process.
+ * The simulated nodes run in the same process as the server, so their usage is included.
+ */
+class ResourceSampler {
+
+    private val os = ManagementFactory.getOperatingSystemMXBean() as? com.sun.management.OperatingSystemMXBean
+    private val memory = ManagementFactory.getMemoryMXBean()
+    private var samples = 0
+    private var cpuSum = 0.0
+    private var cpuMax = 0.0
+    private var heapLast = 0L
+    private var heapMax = 0L
+
+    /**
+     * Takes a sample.
+     */
+    @Synchronized
+    fun sample() {
+        val cpu = os?.processCpuLoad ?: -1.0
+        // The first reading of the process CPU load is negative on some platforms
+        if (cpu >= 0) {
+            samples++
+            cpuSum += cpu
+            cpuMax = Math.max(cpuMax, cpu)
+        }
+        heapLast = memory.heapMemoryUsage.used
+        heapMax = Math.max(heapMax, heapLast)
+    }
+
+    /**
+     * Returns the average and peak CPU load in percent.
+     * @return the CPU load
+     */
+    @Synchronized
+    fun cpu(): String {
+        if (samples == 0) {
+            return "n/a"
+        }
+        return String.format("avg %.1f%%, max %.1f%%", cpuSum / samples * 100, cpuMax * 100)
+    }
+
+    /**
+     * Returns the latest and peak heap usage in megabytes.
+     * @return the heap usage
+     */
+    @Synchronized
+    fun heap(): String {
+        return String.format("last %dMB, max %dMB", heapLast shr 20, heapMax shr 20)
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.loadtest
+
+import cc.hawkbot.regnum.entities.Payload
+import cc.hawkbot.regnum.entities.packets.HeartBeatAckPacket
+import cc.hawkbot.regnum.entities.packets.HeartBeatPacket
+import cc.hawkbot.regnum.entities.packets.HelloPacket
+import cc.hawkbot.regnum.entities.packets.IdentifyPacket
+import cc.hawkbot.regnum.entities.packets.MetricsPacket
+import cc.hawkbot.regnum.entities.packets.discord.AddPacket
+import cc.hawkbot.regnum.entities.packets.discord.RemovePacket
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket
+import cc.hawkbot.regnum.entities.packets.discord.StartGrantPacket
+import cc.hawkbot.regnum.entities.packets.discord.StartPacket
+import cc.hawkbot.regnum.entities.packets.discord.StartRequestPacket
+import cc.hawkbot.regnum.util.logging.Logger
+import java.io.IOException
+import java.net.URI
+import java.net.http.HttpClient
+import java.net.http.WebSocket
+import java.nio.ByteBuffer
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionStage
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Lightweight stand-in for a Regnum node which speaks the websocket protocol without starting any Discord shards.
+ * All nodes share the [httpClient] and the [scheduler] so hundreds of them only need a handful of threads.
+ * @param id the id of the node
+ * @param location the websocket url of the server
+ * @param token the socket token
+ * @param httpClient the client used to open the websocket
+ * @param scheduler the scheduler running heartbeats and metrics
+ * @param metricsInterval the interval in seconds in which [MetricsPacket]s are sent
+ * @param stats the statistics of the load test
+ */
+class SimulatedNode(
+        val id: Int,
+        private val location: URI,
+        private val token: String,
+        private val httpClient: HttpClient,
+        private val scheduler: ScheduledExecutorService,
+        private val metricsInterval: Long,
+        private val stats: LoadTestStats
+) : WebSocket.Listener {
+
+    private val log = Logger.getLogger()
+    private val message = StringBuilder()
+    private val sequence = AtomicLong()
+    // Send times of unacknowledged heartbeats by sequence
+    private val pending = ConcurrentHashMap<Long, Long>()
+    private val tasks = mutableListOf<ScheduledFuture<*>>()
+    // The JDK websocket only allows one outstanding send so sends are chained
+    private var sends: CompletableFuture<*> = CompletableFuture.completedFuture(null)
+    @Volatile
+    private var socket: WebSocket? = null
+    @Volatile
+    private var closing = false
+    private var connectedAt = 0L
+    private var started = false
+    private var coordinated = false
+
+    /**
+     * The shards started on this node.
+     */
+    @Volatile
+    var shards: Array<Int> = arrayOf()
+        private set
+
+    /**
+     * Whether the node is connected or not.
+     */
+    val connected: Boolean
+        get() = socket != null
+
+    /**
+     * Opens the connection and sends IDENTIFY once it's open.
+     * @return a future that completes once the connection is open
+     */
+    fun connect(): CompletableFuture<WebSocket> {
+        closing = false
+        connectedAt = System.nanoTime()
+        return httpClient.newWebSocketBuilder().buildAsync(location, this).whenComplete { _, throwable ->
+            if (throwable != null) {
+                stats.errors.incrementAndGet()
+                log.warn("[LoadTest] Node $id could not connect", throwable)
+            }
+        }
+    }
+
+    /**
+     * Closes the connection.
+     */
+    fun disconnect() {
+        closing = true
+        stop()
+        socket?.sendClose(WebSocket.NORMAL_CLOSURE, "Load test")
+    }
+
+    override fun onOpen(webSocket: WebSocket) {
+        socket = webSocket
+        stats.connects.incrementAndGet()
+        send(Payload.of(IdentifyPacket(token, Payload.VERSION), IdentifyPacket.IDENTIFIER))
+        webSocket.request(1)
+    }
+
+    override fun onText(webSocket: WebSocket, data: CharSequence, last: Boolean): CompletionStage<*>? {
+        message.append(data)
+        if (last) {
+            val text = message.toString()
+            message.setLength(0)
+            try {
+                handle(text)
+            } catch (e: IOException) {
+                log.warn("[LoadTest] Node $id could not read message", e)
+            }
+        }
+        webSocket.request(1)
+        return null
+    }
+
+    override fun onBinary(webSocket: WebSocket, data: ByteBuffer, last: Boolean): CompletionStage<*>? {
+        // No binary codec is offered in IDENTIFY
+        webSocket.request(1)
+        return null
+    }
+
+    override fun onClose(webSocket: WebSocket, statusCode: Int, reason: String): CompletionStage<*>? {
+        stop()
+        socket = null
+        if (!closing) {
+            stats.disconnects.incrementAndGet()
+            log.warn("[LoadTest] Node $id got disconnected with code $statusCode: $reason")
+        }
+        return null
+    }
+
+    override fun onError(webSocket: WebSocket, error: Throwable) {
+        stop()
+        socket = null
+        stats.errors.incrementAndGet()
+        log.warn("[LoadTest] Error on node $id", error)
+    }
+
+    private fun handle(text: String) {
+        val payload = Payload.fromJson(text) ?: return
+        when (payload.type) {
+            HelloPacket.IDENTIFIER -> hello(payload.readPacket(HelloPacket::class.java) ?: return)
+            HeartBeatAckPacket.IDENTIFIER -> {
+                val ack = payload.readPacket(HeartBeatAckPacket::class.java) ?: return
+                val sentAt = pending.remove(ack.sequence) ?: return
+                stats.heartbeat.record(System.nanoTime() - sentAt)
+            }
+            StartPacket.IDENTIFIER -> {
+                val start = payload.readPacket(StartPacket::class.java) ?: return
+                shards = start.shards
+                coordinated = start.isCoordinated
+                stats.started(!started)
+                started = true
+                requestStarts(start.shards)
+            }
+            AddPacket.IDENTIFIER -> {
+                val added = payload.readPacket(AddPacket::class.java)?.shards ?: return
+                shards += added
+                requestStarts(added)
+            }
+            StartGrantPacket.IDENTIFIER -> {
+                val grant = payload.readPacket(StartGrantPacket::class.java) ?: return
+                stats.grants.incrementAndGet()
+                status(grant.shard, ShardStatusPacket.Status.READY)
+            }
+            RemovePacket.IDENTIFIER -> {
+                val removed = payload.readPacket(RemovePacket::class.java)?.shards ?: return
+                shards = shards.filterNot { it in removed }.toTypedArray()
+                removed.forEach { status(it, ShardStatusPacket.Status.DISCONNECTED) }
+            }
+        }
+    }
+
+    private fun requestStarts(shards: Array<Int>) {
+        shards.forEach {
+            if (coordinated) {
+                send(Payload.of(StartRequestPacket(it), StartRequestPacket.IDENTIFIER))
+            } else {
+                status(it, ShardStatusPacket.Status.READY)
+            }
+        }
+    }
+
+    private fun status(shard: Int, status: ShardStatusPacket.Status) {
+        send(Payload.of(ShardStatusPacket(shard, status), ShardStatusPacket.IDENTIFIER))
+    }
+
+    private fun hello(hello: HelloPacket) {
+        stats.authorized(connectedAt)
+        val interval = hello.heartbeatInterval.toLong()
+        // Spread metrics over the interval so the nodes do not send them all at once
+        val metricsDelay = ThreadLocalRandom.current().nextLong(TimeUnit.SECONDS.toMillis(metricsInterval))
+        synchronized(tasks) {
+            tasks += scheduler.scheduleAtFixedRate(this::beat, 0, interval, TimeUnit.SECONDS)
+            tasks += scheduler.scheduleAtFixedRate(this::metrics, metricsDelay, TimeUnit.SECONDS.toMillis(metricsInterval), TimeUnit.MILLISECONDS)
+        }
+    }
+
+    private fun beat() {
+        val sequence = sequence.incrementAndGet()
+        pending[sequence] = System.nanoTime()
+        send(Payload.of(HeartBeatPacket(sequence), HeartBeatPacket.IDENTIFIER))
+    }
+
+    private fun metrics() {
+        // Simulated values of a node running its shards
+        val random = ThreadLocalRandom.current()
+        val guilds = shards.size * 1000L
+        val metrics = MetricsPacket(
+                random.nextLong(50, 150),
+                random.nextLong(30, 100),
+                random.nextLong(256, 1024) shl 20,
+                2048L shl 20,
+                random.nextLong(5, 80),
+                4,
+                guilds,
+                guilds * 100
+        )
+        send(Payload.of(metrics, MetricsPacket.IDENTIFIER))
+    }
+
+    private fun send(payload: Payload) {
+        val socket = socket ?: return
+        val text = payload.toJson(Payload.VERSION)
+        synchronized(this) {
+            sends = sends.handle { _, _ -> null }.thenCompose { socket.sendText(text, true) }
+        }
+    }
+
+    private fun stop() {
+        synchronized(tasks) {
+            tasks.forEach { it.cancel(false) }
+            tasks.clear()
+        }
+        pending.clear()
+    }
+}
@@ -23,6 +23,7 @@ import cc.hawkbot.regnum.io.config.GenericConfig;
 import cc.hawkbot.regnum.server.plugin.discord.DiscordBot;
 import cc.hawkbot.regnum.server.plugin.io.config.Config;
 import cc.hawkbot.regnum.server.plugin.io.config.PluginConfig;
+import cc.hawkbot.regnum.server.plugin.net.ServerPacketProcessor;
 import de.foryasee.plugins.Plugin;
 
 import java.io.File;
@@ -91,6 +92,15 @@ public abstract class RegnumPlugin implements Plugin {
         return server.getWebsocket();
     }
 
+    /**
+     * Returns the packet processor of the websocket.
+     *
+     * @return the {@link ServerPacketProcessor}
+     */
+    public ServerPacketProcessor getPacketProcessor() {
+        return getWebsocket().getPacketProcessor();
+    }
+
     /**
      * Returns the config of the server.
      *
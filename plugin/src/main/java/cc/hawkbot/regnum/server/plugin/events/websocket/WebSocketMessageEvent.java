@@ -26,6 +26,7 @@ import io.javalin.websocket.WsSession;
 
 /**
  * Event that indicates a new websocket message.
+ * The message is decoded once on first access and shared by all listeners.
  *
  * @see WebSocketSessionEvent
  */
@@ -33,27 +34,73 @@ import io.javalin.websocket.WsSession;
 public class WebSocketMessageEvent extends WebSocketSessionEvent {
 
     private final String message;
+    private volatile Payload payload;
+    private volatile Object packet;
 
     public WebSocketMessageEvent(Server server, Websocket websocket, WsSession session, String message) {
         super(server, websocket, session);
         this.message = message;
     }
 
+    /**
+     * Constructs a message event for a binary frame.
+     *
+     * @param server    the server
+     * @param websocket the websocket
+     * @param session   the session
+     * @param payload   the decoded payload
+     */
+    public WebSocketMessageEvent(Server server, Websocket websocket, WsSession session, Payload payload) {
+        super(server, websocket, session);
+        this.message = null;
+        this.payload = payload;
+    }
+
     /**
      * Returns the message as a {@link Payload}.
      *
      * @return the payload
      */
     public Payload getPayload() {
-        return Payload.fromJson(message);
+        var payload = this.payload;
+        if (payload == null) {
+            // Racing listeners might both decode the message which is harmless
+            payload = Payload.fromJson(message);
+            this.payload = payload;
+        }
+        return payload;
+    }
+
+    /**
+     * Returns the packet of the payload.
+     * The last requested packet is cached so listeners asking for the same packet class share one instance.
+     *
+     * @param packetClass the class of the packet
+     * @param <T>         the type of the packet
+     * @return the packet or {@code null} if the message could not be mapped to the packet class
+     * @see Payload#getPacket(Class)
+     */
+    public <T> T getPacket(Class<T> packetClass) {
+        var packet = this.packet;
+        if (packetClass.isInstance(packet)) {
+            return packetClass.cast(packet);
+        }
+        var payload = getPayload();
+        if (payload == null) {
+            return null;
+        }
+        var result = payload.getPacket(packetClass);
+        this.packet = result;
+        return result;
     }
 
     /**
      * Returns the message.
+     * Binary frames get converted to JSON.
      *
      * @return the message
      */
     public String getMessage() {
-        return message;
+        return message != null ? message : payload.toJson(Payload.VERSION);
     }
 }
@@ -24,6 +24,8 @@ import cc.hawkbot.regnum.server.plugin.core.AuthorizationHandler
 import cc.hawkbot.regnum.server.plugin.core.LoadBalancer
 import cc.hawkbot.regnum.server.plugin.discord.DiscordBot
 import cc.hawkbot.regnum.server.plugin.io.config.Config
+import cc.hawkbot.regnum.server.plugin.metrics.MetricsHistory
+import cc.hawkbot.regnum.server.plugin.metrics.MetricsSnapshot
 import cc.hawkbot.regnum.waiter.EventWaiter
 import io.javalin.Javalin
 import net.dv8tion.jda.api.hooks.IEventManager
@@ -82,8 +84,20 @@ interface Server : Closeable {
 
     /**
      * The average metrics of all node.
+     * @see MetricsSnapshot.average
      */
-    var averageMetrics: MetricsPacket
+    val averageMetrics: MetricsPacket
+        get() = metrics.average
+
+    /**
+     * The latest snapshot of the metrics of all nodes.
+     */
+    val metrics: MetricsSnapshot
+
+    /**
+     * The history of the metrics of all nodes.
+     */
+    val metricsHistory: MetricsHistory
 
     /**
      * The httpClient.
@@ -21,7 +21,9 @@ package cc.hawkbot.regnum.server.plugin
 
 import cc.hawkbot.regnum.entities.Payload
 import cc.hawkbot.regnum.entities.packets.MetricsPacket
+import cc.hawkbot.regnum.net.WireTrace
 import cc.hawkbot.regnum.server.plugin.entities.Node
+import cc.hawkbot.regnum.server.plugin.net.ServerPacketProcessor
 import io.javalin.websocket.WsSession
 
 /**
@@ -35,15 +37,44 @@ interface Websocket {
      */
     val nodes: List<Node>
 
+    /**
+     * The processor dispatching packets sent by nodes.
+     */
+    val packetProcessor: ServerPacketProcessor
+
+    /**
+     * The trace of the payloads exchanged with nodes, disabled by default.
+     * Payloads are traced with the [Node.id] as peer, which stays the same when a node resumes, or with the session id
+     * if the session does not belong to a node yet.
+     */
+    val wireTrace: WireTrace
+
     /**
      * Returns a node by its [session].
      * @param session the session
      * @return the node
+     * @throws NoSuchElementException if the session does not belong to an authorized node
      */
     fun getNode(session: WsSession): Node {
-        return nodes.first { it.session == session }
+        return findNode(session) ?: throw NoSuchElementException("No node found for session ${session.id}")
     }
 
+    /**
+     * Returns a node by its [session].
+     * @param session the session
+     * @return the node or `null` if the session does not belong to an authorized node
+     */
+    fun findNode(session: WsSession): Node? {
+        return nodes.firstOrNull { it.session == session }
+    }
+
+    /**
+     * Returns whether the [node] lost its connection but can still resume its session and keep its shards.
+     * @param node the node
+     * @return whether the node is suspended
+     */
+    fun isSuspended(node: Node): Boolean = false
+
     /**
      * Sends a [message] to the specified [session]
      * @param session the session to sent the message to
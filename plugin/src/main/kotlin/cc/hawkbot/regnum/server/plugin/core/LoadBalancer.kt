@@ -19,6 +19,7 @@
 
 package cc.hawkbot.regnum.server.plugin.core
 
+import cc.hawkbot.regnum.server.plugin.entities.Node
 import cc.hawkbot.regnum.server.plugin.events.websocket.WebSocketCloseEvent
 import cc.hawkbot.regnum.server.plugin.events.websocket.WebsocketAuthorizedEvent
 
@@ -49,6 +50,21 @@ interface LoadBalancer {
      */
     fun handleDisconnect(event: WebSocketCloseEvent)
 
+    /**
+     * Moves the [shards] to the [target] node. Every shard is stopped on its current node first and only started on
+     * the target once the current node reported it as disconnected, so no shard runs twice.
+     * @param shards the ids of the shards
+     * @param target the node the shards should run on
+     */
+    fun migrate(shards: Array<Int>, target: Node)
+
+    /**
+     * Moves all shards of the [node] to the other nodes, for example before the node gets redeployed.
+     * @param node the node
+     * @see migrate
+     */
+    fun drain(node: Node)
+
     /**
      * Method that calculated shard ids.
      * @param to the maximal shard id
@@ -69,11 +69,17 @@ interface Node {
     fun startShards(shards: Array<Int>)
 
     /**
-     * Stops a new shard on the node.
-     * @param shards an array with all shard ids to stop.
+     * Starts additional shards on the node.
+     * @param shards an array with all shard ids to start.
      */
     fun addShards(shards: Array<Int>)
 
+    /**
+     * Stops shards on the node.
+     * @param shards an array with all shard ids to stop.
+     */
+    fun removeShards(shards: Array<Int>)
+
     /**
      * Sends a [message] to this node
      * @param message the message
@@ -20,6 +20,7 @@
 package cc.hawkbot.regnum.server.plugin.io.config
 
 import cc.hawkbot.regnum.io.config.GenericConfig
+import cc.hawkbot.regnum.net.codec.PacketCodecs
 
 /**
  * Config for Regnum server.
@@ -35,16 +36,26 @@ class Config(source: String) : GenericConfig(source) {
         const val SOCKET_TOKEN = "socket.token"
         const val SOCKET_HEARTBEAT = "socket.heartbeat"
         const val SOCKET_IDENTIFY = "socket.identify_timeout"
+        const val SOCKET_CODECS = "socket.codecs"
+        const val SOCKET_MESSAGE_EVENTS = "socket.message_events"
+        const val SOCKET_RESUME_TIMEOUT = "socket.resume_timeout"
 
         // Discord
         const val DISCORD_TOKEN = "discord.token"
         const val DISCORD_PREFIX = "discord.prefix"
         const val DISCORD_OWNERS = "discord.owners"
         const val DISCORD_NODE_TOKEN = "discord.node_token"
+        const val DISCORD_GATEWAY_URL = "discord.gateway_url"
 
         // General
         const val PLUGINS_DIRECTORY = "general.plugins_directory"
         const val LOAD_BALANCE_TIMEOUT = "general.load_balance_timeout"
+        const val HANDOFF_TIMEOUT = "general.handoff_timeout"
+        const val EVENT_EXECUTOR = "general.event_executor"
+
+        // Event executors
+        const val EVENT_EXECUTOR_DIRECT = "direct"
+        const val EVENT_EXECUTOR_VIRTUAL = "virtual"
 
         // Discord
         const val CASSANDRA_CONTACT_POINTS = "cassandra.contact_points"
@@ -61,12 +72,18 @@ class Config(source: String) : GenericConfig(source) {
         applyDefault(SOCKET_TOKEN, "SUPER-SECRET-SOCKET_TOKEN")
         applyDefault(SOCKET_HEARTBEAT, 30)
         applyDefault(SOCKET_IDENTIFY, 30)
+        applyDefault(SOCKET_CODECS, PacketCodecs.names)
+        applyDefault(SOCKET_MESSAGE_EVENTS, true)
+        applyDefault(SOCKET_RESUME_TIMEOUT, 30)
         applyDefault(DISCORD_TOKEN, "WUMPUS IS LOVE BRA")
         applyDefault(DISCORD_PREFIX, "hc!")
         applyDefault(DISCORD_OWNERS, listOf(416902379598774273L, 240797338430341120L))
         applyDefault(DISCORD_NODE_TOKEN, "WUMPUS IS STILL LOVE BRA")
+        applyDefault(DISCORD_GATEWAY_URL, "https://discordapp.com/api/gateway/bot")
         applyDefault(PLUGINS_DIRECTORY, "plugins/")
         applyDefault(LOAD_BALANCE_TIMEOUT, 30)
+        applyDefault(HANDOFF_TIMEOUT, 30)
+        applyDefault(EVENT_EXECUTOR, EVENT_EXECUTOR_DIRECT)
         applyDefault(SENTRY_DSN, "YOU DSN")
         applyDefault(CASSANDRA_CONTACT_POINTS, listOf("localhost"))
         applyDefault(CASSANDRA_USERNAME, "cassandra")
@@ -0,0 +1,38 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.plugin.metrics
+
+import java.time.Duration
+
+/**
+ * Fixed-size history of the metrics of every node and of the whole cluster.
+ * Samples are rolled up into buckets of one minute, ten minutes and one hour, queries use the finest resolution
+ * which still covers the requested range.
+ */
+interface MetricsHistory {
+
+    /**
+     * Returns the metrics of the [node] during the last [range].
+     * @param node the id of the node or `null` for the metrics of the whole cluster
+     * @param range the time range, ranges exceeding the retention get truncated
+     * @return the series or `null` if there is no history of the node
+     */
+    fun series(node: String?, range: Duration): MetricsSeries?
+}
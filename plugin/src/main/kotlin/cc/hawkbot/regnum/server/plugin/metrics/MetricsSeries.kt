@@ -0,0 +1,62 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.plugin.metrics
+
+import cc.hawkbot.regnum.entities.packets.MetricsPacket
+
+/**
+ * Series of averaged metrics.
+ * @property node the id of the node or `null` if the series contains the metrics of the whole cluster
+ * @property resolution the width of a bucket in milliseconds
+ * @property timestamps the start of every bucket in epoch milliseconds, ascending
+ * @param values the averages of every field in the order of [MetricsSnapshot.values], one column per field
+ */
+class MetricsSeries(
+        val node: String?,
+        val resolution: Long,
+        val timestamps: LongArray,
+        private val values: Array<LongArray>
+) {
+
+    /**
+     * The amount of buckets.
+     */
+    val size: Int
+        get() = timestamps.size
+
+    /**
+     * Returns the averages of a field of all buckets.
+     * @param field the name of the field
+     * @return the averages
+     * @see MetricsSnapshot.FIELD_NAMES
+     */
+    fun values(field: String): LongArray {
+        val index = MetricsSnapshot.FIELD_NAMES.indexOf(field)
+        require(index >= 0) { "Unknown field $field" }
+        return values[index].copyOf()
+    }
+
+    /**
+     * Returns the averaged metrics of a bucket.
+     * @param index the index of the bucket
+     * @return the metrics
+     */
+    fun metrics(index: Int): MetricsPacket = MetricsSnapshot.of(LongArray(MetricsSnapshot.FIELDS) { values[it][index] })
+}
@@ -0,0 +1,120 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.plugin.metrics
+
+import cc.hawkbot.regnum.entities.packets.MetricsPacket
+
+/**
+ * Immutable snapshot of the metrics of all nodes which sent metrics.
+ * @property nodes the amount of nodes the snapshot contains metrics of
+ * @property total the sum of the metrics of all nodes
+ * @param columns the metrics of all nodes at the time of the snapshot sorted per field in the order of [values],
+ * computed when first requested
+ */
+class MetricsSnapshot(
+        val nodes: Int,
+        val total: MetricsPacket,
+        private val columns: Lazy<Array<LongArray>>
+) {
+
+    companion object {
+        /**
+         * The amount of fields of a [MetricsPacket] which get aggregated.
+         */
+        const val FIELDS = 8
+
+        /**
+         * The names of the aggregated fields in the order of [values].
+         */
+        @JvmField
+        val FIELD_NAMES = arrayOf(
+                "discordRestPing",
+                "discordGatewayPing",
+                "usedMemory",
+                "availableMemory",
+                "cpuUsage",
+                "cpus",
+                "guilds",
+                "users"
+        )
+
+        /**
+         * Snapshot without any nodes.
+         */
+        @JvmField
+        val EMPTY = MetricsSnapshot(0, of(LongArray(FIELDS)), lazyOf(Array(FIELDS) { LongArray(0) }))
+
+        /**
+         * Returns the aggregated fields of the [metrics].
+         * @param metrics the metrics
+         * @return the fields
+         */
+        @JvmStatic
+        fun values(metrics: MetricsPacket) = longArrayOf(
+                metrics.discordRestPing,
+                metrics.discordGatewayPing,
+                metrics.usedMemory,
+                metrics.availableMemory,
+                metrics.cpuUsage,
+                metrics.cpus.toLong(),
+                metrics.guilds,
+                metrics.users
+        )
+
+        /**
+         * Creates a [MetricsPacket] from fields in the order of [values].
+         * @param values the fields
+         * @return the metrics
+         */
+        @JvmStatic
+        fun of(values: LongArray) = MetricsPacket(values[0], values[1], values[2], values[3], values[4], values[5].toInt(), values[6], values[7])
+    }
+
+    /**
+     * The metrics of the whole cluster, pings are averaged while all other fields are summed up.
+     */
+    val average: MetricsPacket = if (nodes == 0) total else MetricsPacket(
+            total.discordRestPing / nodes,
+            total.discordGatewayPing / nodes,
+            total.usedMemory,
+            total.availableMemory,
+            total.cpuUsage,
+            total.cpus,
+            total.guilds,
+            total.users
+    )
+
+    /**
+     * Returns the nearest-rank percentile of every field across all nodes, e.g. the gateway ping 95% of the nodes stay below.
+     * @param percentile the percentile between `0` and `1`
+     * @return the percentiles as metrics
+     */
+    fun percentile(percentile: Double): MetricsPacket {
+        require(percentile in 0.0..1.0) { "Percentile has to be between 0 and 1" }
+        if (nodes == 0) {
+            return total
+        }
+        val columns = columns.value
+        return of(LongArray(FIELDS) {
+            val column = columns[it]
+            if (column.isEmpty()) 0 else column[Math.max(Math.ceil(percentile * column.size).toInt() - 1, 0)]
+        })
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.plugin.net
+
+import cc.hawkbot.regnum.entities.packets.Packet
+import cc.hawkbot.regnum.server.plugin.events.websocket.WebSocketMessageEvent
+import kotlin.reflect.KClass
+
+/**
+ * Handler for packets of a single type sent by nodes.
+ * @property packetIdentifier the identifier of the handled packet
+ * @property packetClass the class of the handled packet
+ * @see ServerPacketProcessor
+ */
+abstract class ServerPacketHandler<T : Packet>(
+        val packetIdentifier: String,
+        val packetClass: KClass<T>
+) {
+
+    /**
+     * Creates a handler for packets of the [packetClass].
+     * @param packetIdentifier the identifier of the handled packet
+     * @param packetClass the class of the handled packet
+     */
+    constructor(packetIdentifier: String, packetClass: Class<T>) : this(packetIdentifier, packetClass.kotlin)
+
+    /**
+     * Processes a [packet].
+     * @param packet the packet
+     * @param event the event of the message which contained the packet
+     */
+    abstract fun processPacket(packet: T, event: WebSocketMessageEvent)
+}
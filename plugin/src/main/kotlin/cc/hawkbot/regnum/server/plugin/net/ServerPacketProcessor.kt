@@ -0,0 +1,54 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.plugin.net
+
+import cc.hawkbot.regnum.server.plugin.events.websocket.WebSocketMessageEvent
+
+/**
+ * Registry which dispatches packets sent by nodes to the [ServerPacketHandler]s registered for their identifier.
+ */
+interface ServerPacketProcessor {
+
+    /**
+     * Registers the [handlers].
+     * @param handlers the handlers
+     */
+    fun registerHandlers(vararg handlers: ServerPacketHandler<*>)
+
+    /**
+     * Unregisters the [handlers].
+     * @param handlers the handlers
+     */
+    fun unregisterHandlers(vararg handlers: ServerPacketHandler<*>)
+
+    /**
+     * Returns all handlers registered for the [packetIdentifier].
+     * @param packetIdentifier the identifier of the packet
+     * @return the handlers
+     */
+    fun handlers(packetIdentifier: String): List<ServerPacketHandler<*>>
+
+    /**
+     * Passes the packet of the [event] to all handlers registered for its identifier.
+     * @param event the event
+     * @return whether there was a handler for the packet or not
+     */
+    fun process(event: WebSocketMessageEvent): Boolean
+}
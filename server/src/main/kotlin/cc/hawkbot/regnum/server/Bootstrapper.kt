@@ -53,6 +53,12 @@ fun main(args: Array<String>) {
                             .longOpt("no-discord")
                             .desc("Disabled built-in Discord bot")
                             .build()
+            ).addOption(
+                    Option.builder("C")
+                            .longOpt("config")
+                            .hasArg()
+                            .desc("Path to the config file")
+                            .build()
             )
 
     val parser = DefaultParser()
@@ -64,5 +70,5 @@ fun main(args: Array<String>) {
     Logger.getLogger().info("[Launcher] Starting Regnum server!")
 
     // Start server
-    ServerImpl(launchedAt, cmd.hasOption("D"), cmd.hasOption("ND"))
+    ServerImpl(launchedAt, cmd.hasOption("D"), cmd.hasOption("ND"), cmd.getOptionValue("C", "config/server.yml"))
 }
\ No newline at end of file
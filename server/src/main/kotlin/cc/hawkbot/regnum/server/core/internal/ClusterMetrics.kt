@@ -0,0 +1,110 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal
+
+import cc.hawkbot.regnum.entities.packets.MetricsPacket
+import cc.hawkbot.regnum.server.plugin.metrics.MetricsSnapshot
+import java.util.ArrayDeque
+
+/**
+ * Aggregates the metrics of all nodes incrementally.
+ * Every update replaces the previous sample of the node in running sums and publishes a new [MetricsSnapshot], so the
+ * work per METRICS packet does not grow with the amount of nodes. Percentiles are only computed when requested.
+ *
+ * Samples are kept in a copy-on-write table of [CHUNK] rows per chunk. An update only copies the chunk of the node and
+ * the chunk index, so every snapshot can keep the table it got published with.
+ */
+class ClusterMetrics {
+
+    companion object {
+        /**
+         * Amount of sample rows per chunk.
+         */
+        const val CHUNK = 64
+    }
+
+    // Slot of every node id in the table
+    private val slots = HashMap<String, Int>()
+    private val free = ArrayDeque<Int>()
+    // Never modified once published, every update replaces the changed chunk
+    private var table = arrayOf<Array<LongArray?>>()
+    private val sums = LongArray(MetricsSnapshot.FIELDS)
+
+    /**
+     * The latest snapshot.
+     */
+    @Volatile
+    var snapshot: MetricsSnapshot = MetricsSnapshot.EMPTY
+        private set
+
+    /**
+     * Replaces the metrics of the [node].
+     * @param node the id of the node
+     * @param metrics the new metrics
+     */
+    @Synchronized
+    fun update(node: String, metrics: MetricsPacket) {
+        val slot = slots.getOrPut(node) { free.poll() ?: slots.size }
+        val values = MetricsSnapshot.values(metrics)
+        set(slot, values)?.let { add(it, -1) }
+        add(values, 1)
+        publish()
+    }
+
+    /**
+     * Removes the metrics of a [node] which left the cluster.
+     * @param node the id of the node
+     */
+    @Synchronized
+    fun remove(node: String) {
+        val slot = slots.remove(node) ?: return
+        free.push(slot)
+        set(slot, null)?.let { add(it, -1) }
+        publish()
+    }
+
+    // Returns the previous row of the slot
+    private fun set(slot: Int, values: LongArray?): LongArray? {
+        val index = slot / CHUNK
+        val copy = if (index < table.size) table.copyOf() else Array(index + 1) { table.getOrElse(it) { arrayOfNulls(CHUNK) } }
+        val chunk = copy[index].copyOf()
+        val previous = chunk[slot % CHUNK]
+        chunk[slot % CHUNK] = values
+        copy[index] = chunk
+        table = copy
+        return previous
+    }
+
+    private fun add(values: LongArray, sign: Int) {
+        for (i in values.indices) {
+            sums[i] += sign * values[i]
+        }
+    }
+
+    private fun publish() {
+        val table = table
+        val nodes = slots.size
+        val columns = lazy {
+            val rows = table.flatMap { it.filterNotNull() }
+            Array(MetricsSnapshot.FIELDS) { field -> LongArray(rows.size) { rows[it][field] }.apply { sort() } }
+        }
+        snapshot = MetricsSnapshot(nodes, MetricsSnapshot.of(sums.copyOf()), columns)
+    }
+}
@@ -20,72 +20,34 @@
 package cc.hawkbot.regnum.server.core.internal
 
 import cc.hawkbot.regnum.waiter.EventWaiter
-import net.dv8tion.jda.api.events.Event
+import cc.hawkbot.regnum.waiter.impl.DefaultEventWaiter
 import net.dv8tion.jda.api.events.GenericEvent
 import net.dv8tion.jda.api.hooks.EventListener
 import net.dv8tion.jda.api.hooks.IEventManager
 import net.dv8tion.jda.api.hooks.SubscribeEvent
-import java.util.concurrent.*
-import java.util.function.Predicate
 
 /**
- * Implementation of [EventWaiter].
+ * Implementation of [EventWaiter] which receives events using a single listener.
  * @param eventManager the event manager
  */
 class EventWaiterImpl(
         private val eventManager: IEventManager
-) : EventWaiter {
+) : DefaultEventWaiter() {
 
-    private val scheduler = Executors.newScheduledThreadPool(10)
+    private val listener = WaiterListener()
 
-    override fun <T> waitFor(event: Class<T>, predicate: Predicate<T>, timeout: Long, timeoutUnit: TimeUnit): CompletionStage<T> {
-        val future = CompletableFuture<T>()
-        val listener = object : WaitingEventListener() {
-            @SubscribeEvent
-            @Suppress("unused")
-            override fun onEvent(genericEvent: Event) {
-                @Suppress("UNCHECKED_CAST")
-                if (event.isInstance(genericEvent)) {
-                    val foundEvent = genericEvent as T
-                    if (predicate.test(foundEvent)) {
-                        cancelTimeout()
-                        unregister(eventManager)
-                        future.complete(foundEvent)
-                    }
-                }
-            }
-        }
-        val timeoutFuture = scheduler.schedule({
-            eventManager.unregister(eventManager)
-            future.completeExceptionally(EventWaiter.TimeoutException("Timeout exceeded"))
-        }, timeout, timeoutUnit)
-        listener.future = timeoutFuture
+    init {
         eventManager.register(listener)
-        return future
     }
 
-    private abstract class WaitingEventListener : EventListener {
+    private inner class WaiterListener : EventListener {
 
-        lateinit var future: ScheduledFuture<*>
-
-        abstract fun onEvent(genericEvent: Event)
-
-        override fun onEvent(event: GenericEvent) {
-            if (event is Event) {
-                onEvent(event)
-            }
-        }
-
-        fun cancelTimeout() {
-            future.cancel(true)
-        }
-
-        fun unregister(eventManager: IEventManager) {
-            eventManager.unregister(this)
-        }
+        @SubscribeEvent
+        override fun onEvent(event: GenericEvent) = dispatch(event)
     }
 
     override fun close() {
-        scheduler.shutdownNow()
+        eventManager.unregister(listener)
+        super.close()
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal
+
+import cc.hawkbot.regnum.server.plugin.events.websocket.WebSocketSessionEvent
+import cc.hawkbot.regnum.util.logging.Logger
+import net.dv8tion.jda.api.events.GenericEvent
+import net.dv8tion.jda.api.hooks.IEventManager
+import java.io.Closeable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.RejectedExecutionException
+import java.util.function.Function
+
+/**
+ * [IEventManager] which hands every event to the [delegate] on the [executor] instead of the firing thread.
+ * The tasks are [EventTask]s, so executors can partition them by their event, e.g. using [BY_SESSION].
+ * @param delegate the event manager calling the listeners
+ * @param executor the executor
+ */
+class ExecutorEventManager(
+        private val delegate: IEventManager,
+        private val executor: ExecutorService
+) : IEventManager by delegate, Closeable {
+
+    companion object {
+        /**
+         * Partition key function which keeps the events of every websocket session in order.
+         */
+        @JvmField
+        val BY_SESSION = Function<Runnable, Any?> { ((it as? EventTask)?.event as? WebSocketSessionEvent)?.session?.id }
+    }
+
+    private val log = Logger.getLogger()
+
+    override fun handle(event: GenericEvent) {
+        try {
+            executor.execute(EventTask(event, delegate))
+        } catch (e: RejectedExecutionException) {
+            log.warn("[EventManager] Dropping {} because the event executor is shut down", event.javaClass.simpleName)
+        }
+    }
+
+    override fun close() = executor.shutdown()
+
+    /**
+     * Task which calls the listeners of an [event].
+     * @property event the event
+     * @param delegate the event manager calling the listeners
+     */
+    class EventTask(val event: GenericEvent, private val delegate: IEventManager) : Runnable {
+        override fun run() = delegate.handle(event)
+    }
+}
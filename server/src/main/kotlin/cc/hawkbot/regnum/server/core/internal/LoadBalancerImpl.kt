@@ -20,6 +20,8 @@
 package cc.hawkbot.regnum.server.core.internal
 
 import cc.hawkbot.regnum.entities.json.JsonObject
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket
+import cc.hawkbot.regnum.server.core.internal.websocket.entities.NodeImpl
 import cc.hawkbot.regnum.server.plugin.Server
 import cc.hawkbot.regnum.server.plugin.core.LoadBalancer
 import cc.hawkbot.regnum.server.plugin.entities.Node
@@ -48,66 +50,167 @@ class LoadBalancerImpl(server: Server) : LoadBalancer {
     override val token: String
     private val ws = server.websocket
     private val scheduler = Executors.newSingleThreadScheduledExecutor(DefaultThreadFactory("LoadBalancer"))
+    @Volatile
     private var balanced = false
     private lateinit var waitFuture: ScheduledFuture<*>
+    private val handoffTimeout = server.config.getLong(Config.HANDOFF_TIMEOUT)
+    // Shards which got stopped on one node and wait to be started on another, only accessed by the scheduler
+    private val handoffs = HashMap<Int, Handoff>()
+
+    /**
+     * The [ShardTable] containing the reported status of every shard.
+     */
+    val shardTable: ShardTable
+
+    /**
+     * The [StartScheduler] which grants nodes slots for identifying shards.
+     */
+    val startScheduler: StartScheduler
 
     init {
         token = server.config.get(Config.DISCORD_NODE_TOKEN)
-        optimalShards = calculateShardCount(server)
+        val gateway = fetchGateway(server)
+        optimalShards = gateway?.getInt("shards") ?: -1
         log.info("[Balancer] Discovered initial optimal shard count of $optimalShards shards")
+        shardTable = ShardTable(optimalShards)
+        val limit = gateway?.path("session_start_limit")
+        startScheduler = StartScheduler(
+                limit?.path("max_concurrency")?.asInt(1) ?: 1,
+                limit?.path("total")?.asInt(1000) ?: 1000,
+                limit?.path("remaining")?.asInt(1000) ?: 1000,
+                limit?.path("reset_after")?.asLong(0) ?: 0,
+                { ws.findNode(it.session) === it },
+                scheduler
+        )
+        log.info("[Balancer] Identifying shards in ${startScheduler.maxConcurrency} concurrent buckets")
     }
 
-    private fun calculateShardCount(server: Server): Int {
+    private fun fetchGateway(server: Server): JsonObject? {
         val request = Request.Builder()
                 .addHeader("Authorization", token)
-                .url("https://discordapp.com/api/gateway/bot")
+                .url(server.config.get<String>(Config.DISCORD_GATEWAY_URL))
                 .build()
         server.httpClient.newCall(request).execute().use {
-            val body = it.body() ?: return -1
-            return JsonObject(body.string()).getInt("shards")
+            val body = it.body() ?: return null
+            return JsonObject(body.string())
         }
     }
 
     @SubscribeEvent
     override fun handleConnect(event: WebsocketAuthorizedEvent) {
-        try {
-            val node = event.node
-            // Check if it's the first node
-            if (ws.nodes.size == 1) {
-                // Check if we only need one node
-                if (optimalShards == 1) {
-                    log.info("[Balancer] Starting shards immediately because enough nodes got connected ")
-                    balance()
-                    return
-                }
-                // Wait for other nodes to connect
-                val timeout = event.server.config.getLong(Config.LOAD_BALANCE_TIMEOUT)
-                log.info("[Balancer] First node connected waiting $timeout seconds for other nodes to connect!")
-                waitFuture = scheduler.schedule(this::balance, timeout, TimeUnit.SECONDS)
-            } else {
-                // Check if shards are already balance
-                if (balanced) {
-                    node.disconnect()
-                } else {
-                    // Check if enough nodes are connected
-                    if (ws.nodes.size == optimalShards) {
-                        if (waitFuture.cancel(false)) {
-                            balance()
-                        }
-                    }
-                }
+        // Check if it's the first node
+        if (ws.nodes.size == 1) {
+            // Check if we only need one node
+            if (optimalShards == 1) {
+                log.info("[Balancer] Starting shards immediately because enough nodes got connected ")
+                balancing(this::balance)
+                return
+            }
+            // Wait for other nodes to connect
+            val timeout = event.server.config.getLong(Config.LOAD_BALANCE_TIMEOUT)
+            log.info("[Balancer] First node connected waiting $timeout seconds for other nodes to connect!")
+            waitFuture = scheduler.schedule(this::balance, timeout, TimeUnit.SECONDS)
+        } else {
+            balancing {
+                // The node might have disconnected already
+                ws.findNode(event.session)?.let { join(it) }
             }
-        } catch (e: Exception) {
-            e.printStackTrace()
         }
     }
 
     @SubscribeEvent
     override fun handleDisconnect(event: WebSocketCloseEvent) {
-        balanced = false
-        rebalance(event.node)
+        // Suspended nodes keep their shards, the websocket calls this again if they do not resume in time
+        if (ws.isSuspended(event.node)) {
+            return
+        }
+        shardTable.disconnect(event.node.id)
+        balancing { rebalance(event.node) }
     }
 
+    override fun migrate(shards: Array<Int>, target: Node) {
+        balancing {
+            if (!acceptsShards(target)) {
+                log.warn("[Balancer] Can not migrate shards to legacy node ${target.id}")
+                return@balancing
+            }
+            val remaining = shards.filter { it in shardIds() }.toMutableSet()
+            ws.nodes.filter { it !== target }.forEach { node ->
+                val moved = assigned(node).filter { it in remaining }
+                if (moved.isNotEmpty()) {
+                    remaining -= moved
+                    if (movable(node)) {
+                        handoff(node, target, moved)
+                    } else {
+                        log.warn("[Balancer] Can not migrate ${moved.joinToString()} away from legacy node ${node.id}")
+                    }
+                }
+            }
+            // Shards that are not running anywhere can be started right away
+            remaining -= assigned(target)
+            if (remaining.isNotEmpty()) {
+                target.addShards(remaining.toTypedArray())
+            }
+        }
+    }
+
+    override fun drain(node: Node) {
+        balancing {
+            if (!movable(node)) {
+                log.warn("[Balancer] Can not drain legacy node ${node.id}")
+                return@balancing
+            }
+            val nodes = ws.nodes.filter { it !== node && acceptsShards(it) }
+            if (nodes.isEmpty()) {
+                log.warn("[Balancer] Can not drain ${node.id} because no other nodes are connected!")
+                return@balancing
+            }
+            log.info("[Balancer] Draining ${node.id}")
+            val metrics = metrics(nodes)
+            val placement = ShardPlacement.assign(
+                    ShardPlacement.capacities(metrics),
+                    ShardPlacement.loads(nodes.map { assigned(it).size }.toIntArray(), metrics),
+                    assigned(node)
+            )
+            nodes.forEachIndexed { index, it ->
+                if (placement[index].isNotEmpty()) {
+                    handoff(node, it, placement[index].toList())
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the status the [node] reported for a shard and starts the shard on its new node once it got stopped
+     * on the node it was handed off from.
+     * @param node the reporting node
+     * @param packet the status report
+     */
+    fun updateStatus(node: Node, packet: ShardStatusPacket) {
+        if (!shardTable.update(packet.shard, node.id, packet.status)) {
+            return
+        }
+        if (packet.status == ShardStatusPacket.Status.DISCONNECTED) {
+            balancing {
+                if (handoffs[packet.shard]?.from === node) {
+                    completeHandoff(packet.shard)
+                }
+            }
+        }
+    }
+
+    /*
+     * Runs the action on the scheduler so joins and leaves are balanced one after another
+     */
+    private fun balancing(action: () -> Unit) {
+        scheduler.execute {
+            try {
+                action()
+            } catch (e: Exception) {
+                log.error("[Balancer] Error while balancing shards", e)
+            }
+        }
+    }
 
     private fun balance() {
         // Check if nodes are connected
@@ -116,57 +219,161 @@ class LoadBalancerImpl(server: Server) : LoadBalancer {
             return
         }
 
-        // Calculate shard ids
-        val shardsPerNode = Math.floor((optimalShards / ws.nodes.size).toDouble()).toInt()
-        val shardIds = shardIds()
         // Start shards
-        startShards(shardsPerNode, shardIds.toList().toTypedArray())
+        startShards(shardIds().toList().toTypedArray())
+    }
+
+    private fun join(node: Node) {
+        // Check if shards are already balanced
+        if (!balanced) {
+            // Check if enough nodes are connected
+            if (ws.nodes.size == optimalShards && this::waitFuture.isInitialized && waitFuture.cancel(false)) {
+                balance()
+            }
+            return
+        }
+        // Move shards from the other nodes to the new node, started legacy nodes keep their shards
+        val nodes = ws.nodes.filter(this::acceptsShards)
+        val moves = ShardPlacement.rebalance(nodes.map { assigned(it) }, ShardPlacement.capacities(metrics(nodes)))
+        log.info("[Balancer] ${node.id} connected! Moving ${moves.sumBy { it.add.size }} shards")
+        move(nodes, moves)
+    }
+
+    /*
+     * Hands the removed shards of every node off to the nodes which add them
+     */
+    private fun move(nodes: List<Node>, moves: List<ShardPlacement.Moves>) {
+        val targets = HashMap<Int, Node>()
+        nodes.forEachIndexed { index, node ->
+            moves[index].add.forEach { targets[it] = node }
+        }
+        nodes.forEachIndexed { index, node ->
+            moves[index].remove.groupBy { targets.remove(it) }.forEach { (target, shards) ->
+                if (target == null) {
+                    node.removeShards(shards.toTypedArray())
+                } else {
+                    handoff(node, target, shards)
+                }
+            }
+        }
+        // Shards that are not running anywhere can be started right away
+        targets.entries.groupBy({ it.value }, { it.key }).forEach { (node, shards) ->
+            node.addShards(shards.toTypedArray())
+        }
+    }
+
+    /*
+     * Stops the shards on the source node, they are started on the target once the source reported them as
+     * disconnected or the handoff timed out
+     */
+    private fun handoff(from: Node, to: Node, shards: List<Int>) {
+        val stop = ArrayList<Int>()
+        shards.forEach { shard ->
+            val pending = handoffs[shard]
+            if (pending != null && pending.to === from) {
+                // The shard is not running on the source yet so only the target changes
+                pending.to = to
+            } else {
+                pending?.timeout?.cancel(false)
+                val handoff = Handoff(from, to)
+                handoff.timeout = scheduler.schedule({
+                    balancing {
+                        if (handoffs[shard] === handoff) {
+                            log.warn("[Balancer] ${from.id} did not stop shard $shard in time! Starting it on ${handoff.to.id}")
+                            completeHandoff(shard)
+                        }
+                    }
+                }, handoffTimeout, TimeUnit.SECONDS)
+                handoffs[shard] = handoff
+                stop += shard
+            }
+        }
+        if (stop.isNotEmpty()) {
+            log.info("[Balancer] Handing ${stop.joinToString()} off from ${from.id} to ${to.id}")
+            from.removeShards(stop.toTypedArray())
+        }
+    }
+
+    private fun completeHandoff(shard: Int) {
+        val handoff = handoffs.remove(shard) ?: return
+        handoff.timeout.cancel(false)
+        // The target might have disconnected or got started as legacy node in the meantime
+        if (ws.findNode(handoff.to.session) == null || !acceptsShards(handoff.to)) {
+            if (ws.nodes.isNotEmpty()) {
+                startShards(arrayOf(shard))
+            }
+            return
+        }
+        handoff.to.addShards(arrayOf(shard))
     }
 
     private fun rebalance(node: Node) {
+        // Shards handed off by the node are stopped now, shards handed off to the node need another node
+        val missingShards = node.shards.toMutableList()
+        handoffs.entries.toList().forEach { (shard, handoff) ->
+            if (handoff.from === node) {
+                completeHandoff(shard)
+            } else if (handoff.to === node) {
+                handoffs.remove(shard)
+                handoff.timeout.cancel(false)
+                missingShards += shard
+            }
+        }
+
         // Check if nodes are connected
         if (ws.nodes.isEmpty()) {
             log.warn("[Balancer] No nodes connected! Aborting balancing!")
+            balanced = false
             return
         }
 
         // Calculate offline shards
-        val missingShards = node.shards
-        log.warn("[Balancer] ${node.id} disconnected! Balancing $missingShards on other nodes")
-        val shardsPerNode = Math.floor((missingShards.count() / ws.nodes.size).toDouble()).toInt()
+        if (missingShards.isEmpty()) {
+            return
+        }
+        log.warn("[Balancer] ${node.id} disconnected! Balancing ${missingShards.joinToString()} on other nodes")
 
         // Start offline shards
-        startShards(shardsPerNode, missingShards)
+        startShards(missingShards.toTypedArray())
     }
 
-    private fun startShards(shardsPerNode: Int, shards: Array<Int>) {
-        val nodes = ws.nodes.iterator()
-        log.info("[DiscordBalancer] Balancing Discord shards on ${shards.toIntArray()} nodes with $shardsPerNode shards/node")
-        val shardIds = shards.iterator()
-        while (nodes.hasNext()) {
-            val shardsList = mutableListOf<Int>()
-            val node = nodes.next()
+    private fun metrics(nodes: List<Node>) = nodes.map { (it as? NodeImpl)?.latestMetrics }
 
-            /**
-             * Adds the next shard to the shards-list
-             */
-            fun addNextId() {
-                shardsList.add(shardIds.next())
-            }
+    /*
+     * Legacy nodes can not add shards after START or stop shards at all
+     */
+    private fun acceptsShards(node: Node) = (node as? NodeImpl)?.acceptsShards ?: true
 
-            // Check if its last node
-            if (nodes.hasNext()) {
-                for (i in 0 until shardsPerNode) {
-                    addNextId()
-                }
-            } else {
-                // Add all missing shards to the last node
-                while (shardIds.hasNext()) {
-                    addNextId()
-                }
+    private fun movable(node: Node) = (node as? NodeImpl)?.legacy != true
+
+    /*
+     * The shards running on the node and the shards which are handed off to it
+     */
+    private fun assigned(node: Node) = node.shards + handoffs.filterValues { it.to === node }.keys
+
+    private fun startShards(shards: Array<Int>) {
+        val nodes = ws.nodes.filter(this::acceptsShards)
+        if (nodes.isEmpty()) {
+            log.warn("[Balancer] Only started legacy nodes are connected! Can not start ${shards.joinToString()}")
+            return
+        }
+        log.info("[DiscordBalancer] Balancing ${shards.size} Discord shards on ${nodes.size} nodes")
+        val metrics = metrics(nodes)
+        val placement = ShardPlacement.assign(
+                ShardPlacement.capacities(metrics),
+                ShardPlacement.loads(nodes.map { assigned(it).size }.toIntArray(), metrics),
+                shards
+        )
+        nodes.forEachIndexed { index, node ->
+            // Nodes that are not started yet receive START
+            if (placement[index].isNotEmpty()) {
+                node.addShards(placement[index])
             }
-            node.startShards(shardsList.toTypedArray())
         }
         balanced = true
     }
-}
\ No newline at end of file
+
+    private class Handoff(val from: Node, var to: Node) {
+        lateinit var timeout: ScheduledFuture<*>
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal
+
+import cc.hawkbot.regnum.server.plugin.Server
+import cc.hawkbot.regnum.server.plugin.io.config.Config
+import cc.hawkbot.regnum.server.plugin.metrics.MetricsSnapshot
+import io.javalin.Context
+import io.javalin.Handler
+import java.time.Duration
+import java.time.temporal.ChronoUnit
+
+/**
+ * Handler of [PATH] which returns the metrics history of a node or the cluster as JSON.
+ * Requests have to send [Config.SOCKET_TOKEN] in the `Authorization` header, the query parameter `node` selects the
+ * node and `range` the time range, e.g. `30m`, `6h` or `7d`.
+ * @param server the server
+ */
+class MetricsHistoryHandler(private val server: Server) : Handler {
+
+    companion object {
+        const val PATH = "/metrics/history"
+        private val RANGE = Regex("(\\d+)([smhd])")
+        private val DEFAULT_RANGE: Duration = Duration.ofHours(1)
+        // Retention of the coarsest resolution
+        private val MAX_RANGE: Duration = Duration.ofMillis(MetricsHistoryImpl.RESOLUTIONS.last() * MetricsHistoryImpl.CAPACITIES.last())
+
+        /**
+         * Parses a time [range] like `30m`, `6h` or `7d`.
+         * @param range the range
+         * @return the range or `null` if it is invalid or longer than the history is kept
+         */
+        @JvmStatic
+        fun parseRange(range: String): Duration? {
+            val match = RANGE.matchEntire(range) ?: return null
+            val unit = when (match.groupValues[2]) {
+                "s" -> ChronoUnit.SECONDS
+                "m" -> ChronoUnit.MINUTES
+                "h" -> ChronoUnit.HOURS
+                else -> ChronoUnit.DAYS
+            }
+            val amount = match.groupValues[1].toLongOrNull() ?: return null
+            val duration = try {
+                Duration.of(amount, unit)
+            } catch (e: ArithmeticException) {
+                return null
+            }
+            return if (duration > MAX_RANGE) null else duration
+        }
+    }
+
+    override fun handle(ctx: Context) {
+        if (ctx.header("Authorization") != server.config.get<String>(Config.SOCKET_TOKEN)) {
+            ctx.status(401).result("Invalid token")
+            return
+        }
+        val param = ctx.queryParam("range")
+        val range = if (param == null) DEFAULT_RANGE else parseRange(param)
+        if (range == null) {
+            ctx.status(400).result("Invalid range, expected at most ${MAX_RANGE.toDays()}d e.g. 30m, 6h or 7d")
+            return
+        }
+        val node = ctx.queryParam("node")
+        val series = server.metricsHistory.series(node, range)
+        if (series == null) {
+            ctx.status(404).result("Unknown node $node")
+            return
+        }
+        val body = linkedMapOf<String, Any?>(
+                "node" to series.node,
+                "resolution" to series.resolution,
+                "timestamps" to series.timestamps
+        )
+        MetricsSnapshot.FIELD_NAMES.forEach { body[it] = series.values(it) }
+        ctx.json(body)
+    }
+}
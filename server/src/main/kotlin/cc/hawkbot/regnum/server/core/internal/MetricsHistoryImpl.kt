@@ -0,0 +1,165 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal
+
+import cc.hawkbot.regnum.entities.packets.MetricsPacket
+import cc.hawkbot.regnum.server.plugin.metrics.MetricsHistory
+import cc.hawkbot.regnum.server.plugin.metrics.MetricsSeries
+import cc.hawkbot.regnum.server.plugin.metrics.MetricsSnapshot
+import java.time.Duration
+import java.util.Arrays
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Implementation of [MetricsHistory] which keeps a fixed amount of buckets per node in primitive arrays.
+ */
+class MetricsHistoryImpl : MetricsHistory {
+
+    companion object {
+        /**
+         * Bucket widths in milliseconds, every sample gets recorded in all of them.
+         */
+        @JvmField
+        val RESOLUTIONS = longArrayOf(TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(10), TimeUnit.HOURS.toMillis(1))
+
+        /**
+         * Amount of buckets per resolution, 4 hours, 2 days and 14 days.
+         */
+        @JvmField
+        val CAPACITIES = intArrayOf(240, 288, 336)
+    }
+
+    private val nodes = ConcurrentHashMap<String, History>()
+    private val cluster = History()
+
+    /**
+     * Records a sample of the [node].
+     * @param node the id of the node
+     * @param metrics the metrics of the node
+     * @param timestamp the time the sample got received at in epoch milliseconds
+     */
+    fun record(node: String, metrics: MetricsPacket, timestamp: Long = System.currentTimeMillis()) {
+        nodes.computeIfAbsent(node) { History() }.record(timestamp, MetricsSnapshot.values(metrics))
+    }
+
+    /**
+     * Records a sample of the whole cluster.
+     * @param metrics the average metrics of the cluster
+     * @param timestamp the time the sample got taken at in epoch milliseconds
+     */
+    fun recordCluster(metrics: MetricsPacket, timestamp: Long = System.currentTimeMillis()) {
+        cluster.record(timestamp, MetricsSnapshot.values(metrics))
+    }
+
+    /**
+     * Drops the history of a [node] which left the cluster.
+     * @param node the id of the node
+     */
+    fun remove(node: String) {
+        nodes.remove(node)
+    }
+
+    override fun series(node: String?, range: Duration) = series(node, range.toMillis(), System.currentTimeMillis())
+
+    /**
+     * Returns the metrics of the [node] in the [range] before [now].
+     * @param node the id of the node or `null` for the whole cluster
+     * @param range the range in milliseconds
+     * @param now the end of the range in epoch milliseconds
+     * @return the series or `null` if there is no history of the node
+     */
+    fun series(node: String?, range: Long, now: Long): MetricsSeries? {
+        val history = if (node == null) cluster else nodes[node] ?: return null
+        return history.series(node, range, now)
+    }
+
+    private class History {
+
+        private val rings = Array(RESOLUTIONS.size) { Ring(RESOLUTIONS[it], CAPACITIES[it]) }
+
+        @Synchronized
+        fun record(timestamp: Long, values: LongArray) = rings.forEach { it.record(timestamp, values) }
+
+        @Synchronized
+        fun series(node: String?, range: Long, now: Long): MetricsSeries {
+            // The finest resolution which covers the range, longer ranges get truncated to the coarsest one
+            val ring = rings.firstOrNull { it.resolution * it.capacity >= range } ?: rings.last()
+            return ring.series(node, now - range, now)
+        }
+    }
+
+    private class Ring(val resolution: Long, val capacity: Int) {
+
+        // Start of the bucket in every slot in epoch milliseconds
+        private val starts = LongArray(capacity) { Long.MIN_VALUE }
+        private val counts = IntArray(capacity)
+        // Sums of all fields, MetricsSnapshot.FIELDS per slot
+        private val sums = LongArray(capacity * MetricsSnapshot.FIELDS)
+
+        fun record(timestamp: Long, values: LongArray) {
+            val bucket = Math.floorDiv(timestamp, resolution)
+            val slot = slot(bucket)
+            val start = bucket * resolution
+            val offset = slot * MetricsSnapshot.FIELDS
+            if (starts[slot] != start) {
+                // Late samples must not overwrite newer buckets
+                if (starts[slot] > start) {
+                    return
+                }
+                starts[slot] = start
+                counts[slot] = 0
+                Arrays.fill(sums, offset, offset + MetricsSnapshot.FIELDS, 0)
+            }
+            counts[slot]++
+            for (i in values.indices) {
+                sums[offset + i] += values[i]
+            }
+        }
+
+        fun series(node: String?, from: Long, to: Long): MetricsSeries {
+            val last = Math.floorDiv(to, resolution)
+            val first = Math.max(Math.floorDiv(from, resolution), last - capacity + 1)
+            var size = 0
+            for (bucket in first..last) {
+                if (starts[slot(bucket)] == bucket * resolution) {
+                    size++
+                }
+            }
+            val timestamps = LongArray(size)
+            val values = Array(MetricsSnapshot.FIELDS) { LongArray(size) }
+            var index = 0
+            for (bucket in first..last) {
+                val slot = slot(bucket)
+                if (starts[slot] != bucket * resolution) {
+                    continue
+                }
+                timestamps[index] = starts[slot]
+                for (field in 0 until MetricsSnapshot.FIELDS) {
+                    values[field][index] = sums[slot * MetricsSnapshot.FIELDS + field] / counts[slot]
+                }
+                index++
+            }
+            return MetricsSeries(node, resolution, timestamps, values)
+        }
+
+        private fun slot(bucket: Long) = Math.floorMod(bucket, capacity.toLong()).toInt()
+    }
+}
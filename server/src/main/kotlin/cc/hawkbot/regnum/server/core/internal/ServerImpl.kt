@@ -20,7 +20,6 @@
 package cc.hawkbot.regnum.server.core.internal
 
 import cc.hawkbot.regnum.entities.json.Json
-import cc.hawkbot.regnum.entities.packets.MetricsPacket
 import cc.hawkbot.regnum.server.core.internal.websocket.ConfigAuthorizer
 import cc.hawkbot.regnum.server.core.internal.websocket.WebsocketImpl
 import cc.hawkbot.regnum.server.discord.DiscordBotImpl
@@ -30,6 +29,9 @@ import cc.hawkbot.regnum.server.plugin.core.AuthorizationHandler
 import cc.hawkbot.regnum.server.plugin.core.LoadBalancer
 import cc.hawkbot.regnum.server.plugin.discord.DiscordBot
 import cc.hawkbot.regnum.server.plugin.io.config.Config
+import cc.hawkbot.regnum.server.plugin.metrics.MetricsSnapshot
+import cc.hawkbot.regnum.util.KeyedSerialExecutor
+import cc.hawkbot.regnum.util.VirtualThreads
 import cc.hawkbot.regnum.util.logging.Logger
 import cc.hawkbot.regnum.waiter.EventWaiter
 import io.javalin.Javalin
@@ -38,44 +40,65 @@ import net.dv8tion.jda.api.hooks.AnnotatedEventManager
 import net.dv8tion.jda.api.hooks.IEventManager
 import okhttp3.OkHttpClient
 import org.apache.commons.lang3.RandomStringUtils
+import java.io.Closeable
 
 /**
  * Implementation of [Server].
  * @param launchedAt timestamp of the servers launch date
  * @param dev whether the server is operating in dev mode or not
  * @param noDiscord Whether the server should start the discord bot or not
+ * @param configPath the path to the servers config file
  * @constructor Constructs a new server
  */
 class ServerImpl(
         override val launchedAt: Long,
         override val dev: Boolean,
-        noDiscord: Boolean
+        noDiscord: Boolean,
+        configPath: String = "config/server.yml"
 ) : Server {
     private val log = Logger.getLogger()
 
-    override val config: Config = Config("config/server.yml")
+    override val config: Config = Config(configPath).also { it.load() }
     override val javalin: Javalin
     override lateinit var websocket: Websocket
     override lateinit var discordBot: DiscordBot
-    override val eventManager: IEventManager = AnnotatedEventManager()
+    override val eventManager: IEventManager = eventManager()
     override val eventWaiter: EventWaiter = EventWaiterImpl(eventManager)
     override var authorizationHandler: AuthorizationHandler = ConfigAuthorizer()
     override lateinit var loadBalancer: LoadBalancer
     override val httpClient: OkHttpClient = OkHttpClient()
     private lateinit var pluginManager: PluginManager
-    override lateinit var averageMetrics: MetricsPacket
+    internal val clusterMetrics = ClusterMetrics()
+    override val metrics: MetricsSnapshot
+        get() = clusterMetrics.snapshot
+    override val metricsHistory = MetricsHistoryImpl()
 
     init {
         JavalinJackson.configure(Json.JACKSON)
-        config.load()
         javalin = Javalin.create().start(config.getInt(Config.SOCKET_PORT))
         shutdownHook()
         plugins()
         hashes()
         initWebsocket()
+        initMetrics()
         initDiscord(noDiscord)
     }
 
+    private fun eventManager(): IEventManager {
+        return when (val executor = config.get<String>(Config.EVENT_EXECUTOR)) {
+            Config.EVENT_EXECUTOR_VIRTUAL -> {
+                if (!VirtualThreads.isSupported()) {
+                    log.warn("[Launcher] Virtual threads are not supported by this runtime, using a cached thread pool")
+                }
+                // Events of a session stay in order, all other events run concurrently
+                val threads = VirtualThreads.newThreadPerTaskExecutor("EventManager")
+                ExecutorEventManager(AnnotatedEventManager(), KeyedSerialExecutor(threads, ExecutorEventManager.BY_SESSION))
+            }
+            Config.EVENT_EXECUTOR_DIRECT -> AnnotatedEventManager()
+            else -> throw IllegalArgumentException("Unknown event executor $executor")
+        }
+    }
+
     private fun plugins() {
         pluginManager = PluginManager(this)
     }
@@ -103,6 +126,10 @@ class ServerImpl(
         eventManager.register(loadBalancer)
     }
 
+    private fun initMetrics() {
+        javalin.get(MetricsHistoryHandler.PATH, MetricsHistoryHandler(this))
+    }
+
     private fun initDiscord(noDiscord: Boolean) {
         if (!noDiscord) {
             discordBot = DiscordBotImpl(config.get(Config.DISCORD_TOKEN))
@@ -112,7 +139,11 @@ class ServerImpl(
     override fun close() {
         pluginManager.close()
         javalin.stop()
+        if (this::websocket.isInitialized) {
+            (websocket as WebsocketImpl).close()
+        }
         eventWaiter.close()
+        (eventManager as? Closeable)?.close()
         if (this::discordBot.isInitialized) {
             discordBot.close()
         }
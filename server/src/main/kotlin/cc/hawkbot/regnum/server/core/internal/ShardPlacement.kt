@@ -0,0 +1,172 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal
+
+import cc.hawkbot.regnum.entities.packets.MetricsPacket
+import java.util.PriorityQueue
+
+/**
+ * Calculates which shards are started on which node.
+ *
+ * Shards are handed out one at a time to the node whose load relative to its capacity is the lowest after taking the
+ * shard, which minimizes the highest relative load of all nodes. Every node then gets a contiguous range of shards.
+ */
+object ShardPlacement {
+
+    /**
+     * Splits the [shards] between [nodes] nodes of equal capacity, the remainder is spread over the first nodes.
+     * @param nodes the amount of nodes
+     * @param shards the shards ids
+     * @return an array containing the shards of every node
+     */
+    fun assign(nodes: Int, shards: Array<Int>): Array<Array<Int>> {
+        require(nodes > 0) { "nodes must be greater than 0" }
+        return assign(DoubleArray(nodes) { 1.0 }, DoubleArray(nodes), shards)
+    }
+
+    /**
+     * Splits the [shards] between nodes with the specified [capacities] which already carry the specified [loads].
+     * @param capacities the capacity of every node relative to the other nodes
+     * @param loads the amount of shards every node already carries
+     * @param shards the shards ids
+     * @return an array containing the shards of every node
+     * @see capacities
+     * @see loads
+     */
+    fun assign(capacities: DoubleArray, loads: DoubleArray, shards: Array<Int>): Array<Array<Int>> {
+        require(capacities.size == loads.size) { "Got ${capacities.size} capacities but ${loads.size} loads" }
+        val counts = distribute(capacities, loads, shards.size, IntArray(capacities.size))
+        var from = 0
+        return Array(capacities.size) {
+            val to = from + counts[it]
+            val range = shards.copyOfRange(from, to)
+            from = to
+            range
+        }
+    }
+
+    /**
+     * Calculates the moves which bring nodes running the [current] shards to the shard counts [assign] would give them
+     * if it placed all shards from scratch.
+     * Every node keeps its shards up to its target count, so only its surplus and the [unassigned] shards are moved to
+     * the nodes below their target. That is the least amount of moves possible for those shard counts.
+     * @param current the shards every node runs
+     * @param capacities the capacity of every node relative to the other nodes
+     * @param unassigned the shards which are not running on any node
+     * @return the shards every node has to start and stop
+     */
+    fun rebalance(current: List<Array<Int>>, capacities: DoubleArray, unassigned: Array<Int> = arrayOf()): List<Moves> {
+        require(current.size == capacities.size) { "Got ${current.size} nodes but ${capacities.size} capacities" }
+        val sizes = IntArray(current.size) { current[it].size }
+        val targets = distribute(capacities, DoubleArray(current.size), sizes.sum() + unassigned.size, sizes)
+        val pool = unassigned.toMutableList()
+        val remove = Array(current.size) {
+            val surplus = sizes[it] - targets[it]
+            if (surplus > 0) {
+                // Stop the highest shards so the remaining ones stay contiguous
+                current[it].sortedArray().copyOfRange(sizes[it] - surplus, sizes[it]).also { shards -> pool += shards }
+            } else {
+                arrayOf()
+            }
+        }
+        pool.sort()
+        var from = 0
+        return List(current.size) {
+            val missing = targets[it] - sizes[it]
+            val add = if (missing > 0) pool.subList(from, from + missing).toTypedArray() else arrayOf()
+            from += Math.max(missing, 0)
+            Moves(add, remove[it])
+        }
+    }
+
+    /*
+     * Hands out amount shards one at a time and returns the count every node got, ties go to the node that runs more
+     * shards and then to the first node
+     */
+    private fun distribute(capacities: DoubleArray, loads: DoubleArray, amount: Int, running: IntArray): IntArray {
+        require(capacities.isNotEmpty()) { "nodes must be greater than 0" }
+        require(capacities.all { it > 0 }) { "capacities must be greater than 0" }
+        val counts = IntArray(capacities.size)
+        // Nodes ordered by their relative load after taking one more shard
+        val queue = PriorityQueue<Int>(capacities.size, compareBy<Int> { (loads[it] + counts[it] + 1) / capacities[it] }
+                .thenByDescending { running[it] }
+                .thenBy { it })
+        capacities.indices.forEach { queue.add(it) }
+        repeat(amount) {
+            val node = queue.poll()
+            counts[node]++
+            queue.add(node)
+        }
+        return counts
+    }
+
+    /**
+     * Calculates the capacity of nodes relative to each other from their latest [MetricsPacket]s.
+     * A node is bounded by its scarcer resource, so its capacity is the lower one of its CPUs and its max heap, each
+     * relative to the average of all nodes. Nodes that did not send metrics yet get the average capacity.
+     * @param metrics the latest metrics of every node or `null` if the node did not send metrics yet
+     * @return the capacity of every node
+     */
+    fun capacities(metrics: List<MetricsPacket?>): DoubleArray {
+        val cpus = metrics.mapNotNull { it?.cpus }.filter { it > 0 }.average()
+        val heap = metrics.mapNotNull { it?.availableMemory }.filter { it > 0 }.average()
+        return DoubleArray(metrics.size) {
+            val node = metrics[it]
+            if (node == null) {
+                1.0
+            } else {
+                val cpu = if (node.cpus > 0) node.cpus / cpus else 1.0
+                val memory = if (node.availableMemory > 0) node.availableMemory / heap else 1.0
+                Math.min(cpu, memory)
+            }
+        }
+    }
+
+    /**
+     * Calculates the load of nodes in shards.
+     * Guilds are not spread evenly between shards, so the load of a node is its guild count divided by the average
+     * guilds per shard of all nodes. Nodes that did not send metrics yet count their shards.
+     * @param shards the amount of shards every node runs
+     * @param metrics the latest metrics of every node or `null` if the node did not send metrics yet
+     * @return the load of every node
+     */
+    fun loads(shards: IntArray, metrics: List<MetricsPacket?>): DoubleArray {
+        var guilds = 0L
+        var guildShards = 0
+        metrics.forEachIndexed { index, node ->
+            if (node != null && node.guilds > 0) {
+                guilds += node.guilds
+                guildShards += shards[index]
+            }
+        }
+        val guildsPerShard = if (guildShards > 0) guilds.toDouble() / guildShards else 0.0
+        return DoubleArray(shards.size) {
+            val node = metrics[it]
+            if (node != null && node.guilds > 0 && guildsPerShard > 0) node.guilds / guildsPerShard else shards[it].toDouble()
+        }
+    }
+
+    /**
+     * Shards a node has to start and stop.
+     * @property add the shards to start
+     * @property remove the shards to stop
+     */
+    class Moves(val add: Array<Int>, val remove: Array<Int>)
+}
@@ -0,0 +1,112 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal
+
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket
+
+/**
+ * Table of the last reported [ShardStatusPacket.Status] and the node of every shard.
+ *
+ * States are stored as one byte per shard so the table stays small for large shard counts.
+ * @param shards the total count of shards
+ */
+class ShardTable(shards: Int) {
+
+    companion object {
+        private const val UNKNOWN: Byte = -1
+        private val STATUSES = ShardStatusPacket.Status.values()
+    }
+
+    private val states = ByteArray(Math.max(shards, 0)) { UNKNOWN }
+    private val owners = arrayOfNulls<String>(Math.max(shards, 0))
+
+    /**
+     * The total count of shards.
+     */
+    val size: Int
+        get() = states.size
+
+    /**
+     * Records the [status] the node with the id [owner] reported for the [shard].
+     *
+     * A shard which already got taken over by another node keeps its status when the previous node reports it as
+     * disconnected.
+     * @param shard the shard id
+     * @param owner the id of the reporting node
+     * @param status the reported status
+     * @return whether the table changed
+     */
+    @Synchronized
+    fun update(shard: Int, owner: String, status: ShardStatusPacket.Status): Boolean {
+        if (shard !in states.indices) {
+            return false
+        }
+        val current = owners[shard]
+        if (status == ShardStatusPacket.Status.DISCONNECTED && current != null && current != owner) {
+            return false
+        }
+        owners[shard] = owner
+        states[shard] = status.ordinal.toByte()
+        return true
+    }
+
+    /**
+     * Marks all shards of the node with the id [owner] as disconnected.
+     * @param owner the id of the node
+     */
+    @Synchronized
+    fun disconnect(owner: String) {
+        owners.forEachIndexed { shard, it ->
+            if (it == owner) {
+                states[shard] = ShardStatusPacket.Status.DISCONNECTED.ordinal.toByte()
+            }
+        }
+    }
+
+    /**
+     * Returns the last reported status of the [shard] or `null` if no status was reported yet.
+     * @param shard the shard id
+     * @return the status
+     */
+    @Synchronized
+    fun status(shard: Int): ShardStatusPacket.Status? {
+        val state = states.getOrElse(shard) { UNKNOWN }
+        return if (state == UNKNOWN) null else STATUSES[state.toInt()]
+    }
+
+    /**
+     * Returns the id of the node which last reported the [shard] or `null` if no status was reported yet.
+     * @param shard the shard id
+     * @return the node id
+     */
+    @Synchronized
+    fun owner(shard: Int) = owners.getOrNull(shard)
+
+    /**
+     * Counts the shards with the [status].
+     * @param status the status
+     * @return the amount of shards
+     */
+    @Synchronized
+    fun count(status: ShardStatusPacket.Status): Int {
+        val state = status.ordinal.toByte()
+        return states.count { it == state }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal
+
+import cc.hawkbot.regnum.entities.Payload
+import cc.hawkbot.regnum.entities.packets.discord.StartGrantPacket
+import cc.hawkbot.regnum.server.plugin.entities.Node
+import cc.hawkbot.regnum.util.logging.Logger
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+/**
+ * Grants nodes slots for identifying shards, so the whole cluster keeps to Discord's identify rate limit.
+ *
+ * Shards are sorted into rate limit buckets by `shard % maxConcurrency` and every bucket allows one IDENTIFY per
+ * [IDENTIFY_INTERVAL], so up to `maxConcurrency` shards start at once. Once the remaining session starts are used up
+ * grants are held back until the session start limit resets. Grants of nodes which lost their connection and can
+ * still resume are parked until the node [resumes][resume].
+ * @param maxConcurrency the amount of rate limit buckets
+ * @param total the session starts allowed per reset period
+ * @param remaining the remaining session starts
+ * @param resetAfter the milliseconds until the remaining session starts reset
+ * @param connected checks whether a node is still connected
+ * @param scheduler the scheduler which sends the grants
+ * @param nanoTime the time source in nanoseconds
+ */
+class StartScheduler @JvmOverloads constructor(
+        maxConcurrency: Int,
+        private val total: Int,
+        private var remaining: Int,
+        resetAfter: Long,
+        private val connected: (Node) -> Boolean,
+        private val scheduler: ScheduledExecutorService,
+        private val nanoTime: () -> Long = System::nanoTime
+) {
+
+    companion object {
+        /**
+         * Nanoseconds between two identifies in the same bucket.
+         */
+        @JvmField
+        val IDENTIFY_INTERVAL = TimeUnit.SECONDS.toNanos(5)
+        private val RESET_INTERVAL = TimeUnit.DAYS.toNanos(1)
+    }
+
+    private val log = Logger.getLogger()
+    // Next free slot of every bucket in nanoTime()
+    private val buckets = LongArray(Math.max(maxConcurrency, 1)) { nanoTime() }
+    private var resetAt = nanoTime() + TimeUnit.MILLISECONDS.toNanos(resetAfter)
+    private val suspended = HashSet<Node>()
+    // Shards granted while their node was suspended
+    private val parked = HashMap<Node, MutableList<Int>>()
+
+    /**
+     * The amount of rate limit buckets.
+     */
+    val maxConcurrency: Int
+        get() = buckets.size
+
+    /**
+     * Schedules a grant for the [node] to identify the [shard] in the next free slot of the shards bucket.
+     * @param node the node
+     * @param shard the shard id
+     */
+    @Synchronized
+    fun request(node: Node, shard: Int) {
+        val now = nanoTime()
+        if (now - resetAt >= 0) {
+            remaining = total
+            resetAt = now + RESET_INTERVAL
+        }
+        var earliest = now
+        if (remaining <= 0) {
+            log.warn("[StartScheduler] Session start limit of $total starts reached! Shard $shard waits for the reset")
+            earliest = resetAt
+            remaining = total
+            resetAt += RESET_INTERVAL
+        }
+        remaining--
+        val bucket = shard % buckets.size
+        val slot = if (buckets[bucket] - earliest > 0) buckets[bucket] else earliest
+        buckets[bucket] = slot + IDENTIFY_INTERVAL
+        scheduler.schedule({ grant(node, shard) }, slot - now, TimeUnit.NANOSECONDS)
+    }
+
+    /**
+     * Parks the grants of a [node] which lost its connection but can still resume.
+     * @param node the node
+     */
+    @Synchronized
+    fun suspend(node: Node) {
+        suspended += node
+    }
+
+    /**
+     * Sends the grants parked while the [node] was suspended.
+     * @param node the node which resumed its session
+     */
+    @Synchronized
+    fun resume(node: Node) {
+        suspended -= node
+        parked.remove(node)?.forEach { send(node, it) }
+    }
+
+    /**
+     * Drops the grants of a suspended [node] which did not resume in time.
+     * @param node the node
+     */
+    @Synchronized
+    fun release(node: Node) {
+        suspended -= node
+        parked.remove(node)
+    }
+
+    @Synchronized
+    private fun grant(node: Node, shard: Int) {
+        if (node in suspended) {
+            parked.getOrPut(node) { mutableListOf() } += shard
+            return
+        }
+        // The slot is lost if the node disconnected in the meantime
+        if (connected(node)) {
+            send(node, shard)
+        }
+    }
+
+    private fun send(node: Node, shard: Int) = node.send(Payload.of(StartGrantPacket(shard), StartGrantPacket.IDENTIFIER))
+}
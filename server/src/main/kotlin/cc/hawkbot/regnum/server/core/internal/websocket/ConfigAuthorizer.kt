@@ -19,51 +19,52 @@
 
 package cc.hawkbot.regnum.server.core.internal.websocket
 
-import cc.hawkbot.regnum.entities.json.Json
 import cc.hawkbot.regnum.entities.packets.IdentifyPacket
 import cc.hawkbot.regnum.server.plugin.Server
 import cc.hawkbot.regnum.server.plugin.core.AuthorizationHandler
 import cc.hawkbot.regnum.server.plugin.events.websocket.WebSocketMessageEvent
 import cc.hawkbot.regnum.server.plugin.io.config.Config
+import cc.hawkbot.regnum.server.plugin.net.ServerPacketHandler
 import cc.hawkbot.regnum.util.logging.Logger
 import io.javalin.websocket.WsSession
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.CompletionStage
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
 
 /**
  * Default implementation of [AuthorizationHandler] which compares the token which [Config.SOCKET_TOKEN].
+ * The IDENTIFY packet is received as a [ServerPacketHandler].
  */
-class ConfigAuthorizer : AuthorizationHandler {
+class ConfigAuthorizer : ServerPacketHandler<IdentifyPacket>(IdentifyPacket.IDENTIFIER, IdentifyPacket::class), AuthorizationHandler {
 
     private val log = Logger.getLogger()
+    private val pending = ConcurrentHashMap<String, CompletableFuture<WsSession>>()
 
     override fun authorize(server: Server, wsSession: WsSession): CompletionStage<WsSession> {
         log.info("[WS] NodeImpl {} connected. Waiting for IDENTIFY", wsSession.id)
-        val config = server.config
         val connectFuture = CompletableFuture<WsSession>()
-        val future = server.eventWaiter.waitFor(WebSocketMessageEvent::class.java, {
-            it.session == wsSession
-        }, config.getLong(Config.SOCKET_IDENTIFY), TimeUnit.SECONDS)
-        future.exceptionally {
-            log.warn("[Authorizer] ${wsSession.id} Got disconnected for not sending IDENTIFY in time")
-            wsSession.disconnect()
-            return@exceptionally null
-        }
-        future.thenAccept {
-            val token = config.get<String>(Config.SOCKET_TOKEN)
-            val payload = it.payload
-            if (payload.type == IdentifyPacket.IDENTIFIER) {
-                val identify = Json.fromJson(IdentifyPacket::class.java, payload.packet) ?: return@thenAccept
-                if (token == identify.token) {
-                    connectFuture.complete(wsSession)
-                } else {
-                    log.info("[Authorizer] Disconnecting ${it.session.id} for sending wrong token")
-                    wsSession.disconnect()
-                    connectFuture.completeExceptionally(RuntimeException("invalid token"))
-                }
+        pending[wsSession.id] = connectFuture
+        connectFuture.orTimeout(server.config.getLong(Config.SOCKET_IDENTIFY), TimeUnit.SECONDS).whenComplete { _, throwable ->
+            pending.remove(wsSession.id, connectFuture)
+            if (throwable is TimeoutException) {
+                log.warn("[Authorizer] ${wsSession.id} Got disconnected for not sending IDENTIFY in time")
+                wsSession.disconnect()
             }
         }
         return connectFuture
     }
-}
\ No newline at end of file
+
+    override fun processPacket(packet: IdentifyPacket, event: WebSocketMessageEvent) {
+        val future = pending.remove(event.session.id) ?: return
+        val token = event.server.config.get<String>(Config.SOCKET_TOKEN)
+        if (token == packet.token) {
+            future.complete(event.session)
+        } else {
+            log.info("[Authorizer] Disconnecting ${event.session.id} for sending wrong token")
+            event.session.disconnect()
+            future.completeExceptionally(RuntimeException("invalid token"))
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal.websocket
+
+import cc.hawkbot.regnum.net.codec.PacketCodec
+
+/**
+ * Connection state negotiated with a node during IDENTIFY or RESUME.
+ * @property protocolVersion the payload protocol version
+ * @property codec the codec used for binary frames
+ * @property resume the id of the session the node wants to resume or `null` if the node sent IDENTIFY
+ */
+internal class Connection(val protocolVersion: Int, val codec: PacketCodec, val resume: String? = null) {
+
+    /**
+     * Whether HELLO was sent and payloads are encoded using the [codec].
+     */
+    @Volatile
+    var established = false
+}
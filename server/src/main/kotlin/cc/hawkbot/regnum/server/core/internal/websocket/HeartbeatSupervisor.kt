@@ -0,0 +1,105 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal.websocket
+
+import cc.hawkbot.regnum.entities.Payload
+import cc.hawkbot.regnum.entities.packets.HeartBeatAckPacket
+import cc.hawkbot.regnum.entities.packets.HeartBeatPacket
+import cc.hawkbot.regnum.server.plugin.Server
+import cc.hawkbot.regnum.server.plugin.entities.Node
+import cc.hawkbot.regnum.server.plugin.io.config.Config
+import cc.hawkbot.regnum.util.DefaultThreadFactory
+import cc.hawkbot.regnum.util.logging.Logger
+import java.io.Closeable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Watches the heartbeats of all nodes using a single periodic sweep which disconnects nodes that did not send a
+ * heartbeat within the heartbeat interval plus [MARGIN].
+ * @param server the [Server]
+ */
+class HeartbeatSupervisor(server: Server) : Closeable {
+
+    companion object {
+        /**
+         * Seconds a heartbeat may be late.
+         */
+        const val MARGIN = 200
+    }
+
+    private val log = Logger.getLogger()
+    private val nodes = ConcurrentHashMap<String, Node>()
+    private val timeout = TimeUnit.SECONDS.toMillis(server.config.getLong(Config.SOCKET_HEARTBEAT) + MARGIN)
+    private val scheduler = Executors.newSingleThreadScheduledExecutor(DefaultThreadFactory("Heartbeat"))
+
+    init {
+        val interval = Math.max(server.config.getLong(Config.SOCKET_HEARTBEAT) / 2, 1)
+        scheduler.scheduleAtFixedRate(this::sweep, interval, interval, TimeUnit.SECONDS)
+    }
+
+    /**
+     * Starts watching the heartbeats of the [node].
+     * @param node the node
+     */
+    fun register(node: Node) {
+        node.pulse.lastHeartbeat = System.currentTimeMillis()
+        nodes[node.session.id] = node
+    }
+
+    /**
+     * Stops watching the heartbeats of the [node].
+     * @param node the node
+     */
+    fun unregister(node: Node) {
+        nodes.remove(node.session.id, node)
+    }
+
+    /**
+     * Records a heartbeat of the node with the [sessionId] and acknowledges it echoing the heartbeats sequence number.
+     * @param sessionId the id of the nodes session
+     * @param packet the [HeartBeatPacket]
+     */
+    fun beat(sessionId: String, packet: HeartBeatPacket) {
+        val node = nodes[sessionId] ?: return
+        node.pulse.lastHeartbeat = System.currentTimeMillis()
+        node.send(Payload.of(HeartBeatAckPacket(packet.sequence), HeartBeatAckPacket.IDENTIFIER))
+    }
+
+    private fun sweep() {
+        val deadline = System.currentTimeMillis() - timeout
+        nodes.values.forEach {
+            if (it.pulse.lastHeartbeat < deadline && nodes.remove(it.session.id, it)) {
+                @Suppress("SpellCheckingInspection")
+                log.warn("[WS] Disconnecting node ${it.id} for not sending heartbeat")
+                try {
+                    it.disconnect()
+                } catch (e: Exception) {
+                    log.warn("[WS] Could not disconnect node ${it.id}", e)
+                }
+            }
+        }
+    }
+
+    override fun close() {
+        scheduler.shutdownNow()
+    }
+}
@@ -19,59 +19,30 @@
 
 package cc.hawkbot.regnum.server.core.internal.websocket
 
-import cc.hawkbot.regnum.entities.json.Json
 import cc.hawkbot.regnum.entities.packets.MetricsPacket
-import cc.hawkbot.regnum.server.plugin.Websocket
+import cc.hawkbot.regnum.server.core.internal.ServerImpl
 import cc.hawkbot.regnum.server.plugin.events.websocket.WebSocketMessageEvent
+import cc.hawkbot.regnum.server.plugin.net.ServerPacketHandler
 import cc.hawkbot.regnum.util.logging.Logger
-import net.dv8tion.jda.api.hooks.SubscribeEvent
 
 /**
- * Listener which watches and calculates average metrics.
+ * Packet handler which watches metrics, aggregates them in [cc.hawkbot.regnum.server.core.internal.ClusterMetrics] and
+ * records them in the [cc.hawkbot.regnum.server.core.internal.MetricsHistoryImpl].
  */
-class MetricsWatcher {
+class MetricsWatcher : ServerPacketHandler<MetricsPacket>(MetricsPacket.IDENTIFIER, MetricsPacket::class) {
 
     private val log = Logger.getLogger()
 
-    @SubscribeEvent
-    @Suppress("unused")
-    private fun onMetrics(event: WebSocketMessageEvent) {
-        val payload = event.payload
-        if (payload.type == MetricsPacket.IDENTIFIER) {
-            log.info("[Metrics] Received METRICS from ${event.node.id}")
-            val metrics = Json.fromJson(MetricsPacket::class.java, payload.packet)
-            (event.websocket as WebsocketImpl).metrics[event.node] = metrics ?: return
-            val average = calculateMetrics(event.websocket)
-            event.server.averageMetrics = average
+    override fun processPacket(packet: MetricsPacket, event: WebSocketMessageEvent) {
+        val websocket = event.websocket as WebsocketImpl
+        val node = websocket.findNode(event.session) ?: return
+        if (log.isDebugEnabled) {
+            log.debug("[Metrics] Received METRICS from {}", node.id)
         }
+        node.latestMetrics = packet
+        val server = event.server as ServerImpl
+        server.clusterMetrics.update(node.id, packet)
+        server.metricsHistory.record(node.id, packet)
+        server.metricsHistory.recordCluster(server.metrics.average)
     }
-
-    private fun calculateMetrics(websocket: Websocket): MetricsPacket {
-        var discordRestPing = 0L
-        var discordGatewayPing = 0L
-        var usedMemory = 0L
-        var availableMemory = 0L
-        var cpuUsage = 0L
-        var cpus = 0
-        var guilds = 0L
-        var users = 0L
-
-        websocket.nodes.map { it.metrics }.forEach {
-            discordRestPing += it.discordRestPing
-            discordGatewayPing += it.discordGatewayPing
-            usedMemory += it.usedMemory
-            availableMemory += it.availableMemory
-            cpuUsage += it.cpuUsage
-            cpus += it.cpus
-            guilds += it.guilds
-            users += it.users
-        }
-
-        // Average pings
-        val total = websocket.nodes.size
-        discordGatewayPing /= total
-        discordRestPing /= total
-
-        return MetricsPacket(discordRestPing, discordGatewayPing, usedMemory, availableMemory, cpuUsage, cpus, guilds, users)
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal.websocket
+
+import cc.hawkbot.regnum.entities.packets.Packet
+import cc.hawkbot.regnum.server.plugin.events.websocket.WebSocketMessageEvent
+import cc.hawkbot.regnum.server.plugin.net.ServerPacketHandler
+import cc.hawkbot.regnum.server.plugin.net.ServerPacketProcessor
+import cc.hawkbot.regnum.util.logging.Logger
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * Implementation of [ServerPacketProcessor].
+ */
+class ServerPacketProcessorImpl : ServerPacketProcessor {
+
+    private val log = Logger.getLogger()
+    private val handlers = ConcurrentHashMap<String, CopyOnWriteArrayList<ServerPacketHandler<*>>>()
+
+    override fun registerHandlers(vararg handlers: ServerPacketHandler<*>) {
+        handlers.forEach {
+            this.handlers.computeIfAbsent(it.packetIdentifier) { CopyOnWriteArrayList() }.add(it)
+        }
+    }
+
+    override fun unregisterHandlers(vararg handlers: ServerPacketHandler<*>) {
+        handlers.forEach {
+            this.handlers[it.packetIdentifier]?.remove(it)
+        }
+    }
+
+    override fun handlers(packetIdentifier: String): List<ServerPacketHandler<*>> {
+        return handlers[packetIdentifier] ?: emptyList()
+    }
+
+    override fun process(event: WebSocketMessageEvent): Boolean {
+        val payload = event.payload ?: return false
+        val handlers = handlers[payload.type]
+        if (handlers == null || handlers.isEmpty()) {
+            return false
+        }
+        handlers.forEach { processHandler(it, event) }
+        return true
+    }
+
+    private fun <T : Packet> processHandler(handler: ServerPacketHandler<T>, event: WebSocketMessageEvent) {
+        val packet = event.getPacket(handler.packetClass.java)
+        if (packet == null) {
+            log.warn("[PacketProcessor] Packet {} of node {} could not be processed", handler.packetIdentifier, event.session.id)
+            return
+        }
+        try {
+            handler.processPacket(packet, event)
+        } catch (e: Exception) {
+            log.error("[PacketProcessor] An error occurred while processing packet ${handler.packetIdentifier}", e)
+        }
+    }
+}
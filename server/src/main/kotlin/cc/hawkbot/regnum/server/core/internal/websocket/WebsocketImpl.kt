@@ -21,17 +21,34 @@ package cc.hawkbot.regnum.server.core.internal.websocket
 
 import cc.hawkbot.regnum.entities.Payload
 import cc.hawkbot.regnum.entities.packets.HelloPacket
+import cc.hawkbot.regnum.entities.packets.IdentifyPacket
 import cc.hawkbot.regnum.entities.packets.MetricsPacket
+import cc.hawkbot.regnum.entities.packets.ResumePacket
+import cc.hawkbot.regnum.net.WireTrace
+import cc.hawkbot.regnum.net.codec.PacketCodecs
+import cc.hawkbot.regnum.server.core.internal.LoadBalancerImpl
 import cc.hawkbot.regnum.server.core.internal.ServerImpl
+import cc.hawkbot.regnum.server.core.internal.StartScheduler
 import cc.hawkbot.regnum.server.core.internal.websocket.entities.NodeImpl
 import cc.hawkbot.regnum.server.plugin.Server
 import cc.hawkbot.regnum.server.plugin.Websocket
 import cc.hawkbot.regnum.server.plugin.entities.Node
 import cc.hawkbot.regnum.server.plugin.events.websocket.*
 import cc.hawkbot.regnum.server.plugin.io.config.Config
+import cc.hawkbot.regnum.server.plugin.net.ServerPacketHandler
+import cc.hawkbot.regnum.server.plugin.net.ServerPacketProcessor
+import cc.hawkbot.regnum.util.DefaultThreadFactory
 import cc.hawkbot.regnum.util.logging.Logger
 import io.javalin.websocket.WsHandler
 import io.javalin.websocket.WsSession
+import org.eclipse.jetty.websocket.api.StatusCode
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
 
 /**
  * Implementation of [Websocket]
@@ -42,37 +59,129 @@ import io.javalin.websocket.WsSession
 class WebsocketImpl(ws: WsHandler, private val server: Server) : Websocket {
 
     private val log = Logger.getLogger()
-    override val nodes = mutableListOf<Node>()
+    // Authorized nodes by session id
+    private val registry = ConcurrentHashMap<String, NodeImpl>()
+    private val registryLock = Any()
+    // Copy-on-write snapshot of the registry in connection order, replaced on every (dis)connect
+    @Volatile
+    override var nodes: List<Node> = emptyList()
+        private set
     private val authorizationHandler = server.authorizationHandler
-    internal val metrics = mutableMapOf<Node, MetricsPacket>()
+    // Negotiated connection state per session id, known after IDENTIFY
+    private val connections = ConcurrentHashMap<String, Connection>()
+    private val codecs = server.config.get<List<String>>(Config.SOCKET_CODECS)
+    private val messageEvents = server.config.get<Boolean>(Config.SOCKET_MESSAGE_EVENTS)
+    private val resumeTimeout = server.config.getLong(Config.SOCKET_RESUME_TIMEOUT)
+    // Nodes which lost their connection and can still resume, by session id
+    private val suspended = ConcurrentHashMap<String, Suspension>()
+    private val scheduler = Executors.newSingleThreadScheduledExecutor(DefaultThreadFactory("Resume"))
+    override val packetProcessor: ServerPacketProcessor = ServerPacketProcessorImpl()
+    internal val heartbeatSupervisor = HeartbeatSupervisor(server)
+    override val wireTrace = WireTrace()
 
     init {
         (server as ServerImpl).websocket = this
+        packetProcessor.registerHandlers(HeartbeatHandler(), MetricsWatcher(), StartRequestHandler(), ShardStatusHandler())
+        if (authorizationHandler is ServerPacketHandler<*>) {
+            packetProcessor.registerHandlers(authorizationHandler)
+            // RESUME carries the same credentials as IDENTIFY
+            if (authorizationHandler.packetIdentifier == IdentifyPacket.IDENTIFIER) {
+                @Suppress("UNCHECKED_CAST")
+                packetProcessor.registerHandlers(ResumeAuthorizer(authorizationHandler as ServerPacketHandler<IdentifyPacket>))
+            }
+        }
         ws.onConnect {
             handleConnect(it)
         }
         ws.onClose { session, statusCode, reason ->
-            val node = getNode(session)
-            nodes.remove(node)
-            callEvent(WebSocketCloseEvent(server, this, session, statusCode, reason, node))
+            connections.remove(session.id)
+            // Unauthorized sessions do not have a node
+            val node = findNode(session) ?: return@onClose
+            // Grants must not get lost between leaving the registry and getting suspended
+            if (resumable(node, statusCode)) {
+                startScheduler?.suspend(node)
+            }
+            removeNode(session)
+            heartbeatSupervisor.unregister(node)
+            val event = WebSocketCloseEvent(server, this, session, statusCode, reason, node)
+            suspend(node, event)
+            // Suspended nodes keep their metrics until they expire
+            if (!isSuspended(node)) {
+                releaseMetrics(node)
+            }
+            callEvent(event)
         }
         ws.onMessage { session, msg -> handleMessage(session, msg) }
+        ws.onMessage { session: WsSession, msg: Array<Byte>, offset: Int, length: Int ->
+            handleBinaryMessage(session, ByteArray(length) { msg[offset + it] })
+        }
         ws.onError { session, throwable -> handleError(session, throwable) }
     }
 
+    // Custom load balancers do not coordinate shard starts
+    private val startScheduler: StartScheduler?
+        get() = (server.loadBalancer as? LoadBalancerImpl)?.startScheduler
+
+    override fun findNode(session: WsSession): NodeImpl? {
+        return registry[session.id]
+    }
+
+    /*
+     * Nodes keep their id when they resume on a new session, so the trace follows them across sessions
+     * Sessions without node are traced by their own id
+     */
+    private fun peer(session: WsSession): String {
+        findNode(session)?.let { return it.id }
+        val resume = connections[session.id]?.resume ?: return session.id
+        return suspended[resume]?.node?.id ?: session.id
+    }
+
     override fun metrics(node: Node): MetricsPacket {
-        return metrics[node]!!
+        return node.metrics
+    }
+
+    override fun isSuspended(node: Node): Boolean {
+        val sessionId = (node as? NodeImpl)?.sessionId ?: return false
+        return suspended[sessionId]?.node === node
+    }
+
+    private fun addNode(node: NodeImpl) {
+        synchronized(registryLock) {
+            registry[node.session.id] = node
+            nodes = nodes + node
+        }
+    }
+
+    private fun removeNode(session: WsSession): NodeImpl? {
+        synchronized(registryLock) {
+            val node = registry.remove(session.id) ?: return null
+            nodes = nodes - node
+            return node
+        }
     }
 
     private fun handleConnect(it: WsSession) {
         callEvent(WebSocketConnectedEvent(server, this, it))
         authorizationHandler.authorize(server, it)
                 .thenAccept {
+                    val connection = connections[it.id]
+                    val suspension = connection?.resume?.let { id -> suspended.remove(id) }
+                    if (suspension != null) {
+                        resume(it, suspension)
+                        return@thenAccept
+                    }
                     log.info("[WS] ${it.id} connected and authorized!")
-                    val node = NodeImpl(it, this, server)
+                    // Legacy nodes do not know RESUME
+                    val sessionId = if (resumeTimeout > 0 && connection != null && connection.protocolVersion > Payload.LEGACY_VERSION) {
+                        UUID.randomUUID().toString()
+                    } else {
+                        null
+                    }
+                    val node = NodeImpl(it, this, server, sessionId)
 
-                    nodes.add(node)
-                    node.send(Payload.of(HelloPacket(server.config.getInt(Config.SOCKET_HEARTBEAT)), HelloPacket.IDENTIFIER))
+                    addNode(node)
+                    heartbeatSupervisor.register(node)
+                    sendHello(it, node, false)
                     callEvent(WebsocketAuthorizedEvent(server, this, it))
                 }
                 .exceptionally {
@@ -81,9 +190,93 @@ class WebsocketImpl(ws: WsHandler, private val server: Server) : Websocket {
                 }
     }
 
+    /*
+     * Keeps the shards of a node which lost its connection until it resumes or the resume timeout expires
+     */
+    private fun suspend(node: NodeImpl, event: WebSocketCloseEvent) {
+        if (!resumable(node, event.code)) {
+            return
+        }
+        val sessionId = node.sessionId!!
+        val suspension = Suspension(node, event)
+        suspended[sessionId] = suspension
+        suspension.expiry = scheduler.schedule({ expire(sessionId, suspension) }, resumeTimeout, TimeUnit.SECONDS)
+        log.info("[WS] ${node.id} lost its connection! Keeping its shards for $resumeTimeout seconds")
+    }
+
+    // Nodes which close normally are shutting down
+    private fun resumable(node: NodeImpl, code: Int) = node.sessionId != null && code != StatusCode.NORMAL
+
+    private fun expire(sessionId: String, suspension: Suspension) {
+        if (!suspended.remove(sessionId, suspension)) {
+            return
+        }
+        log.warn("[WS] ${suspension.node.id} did not resume in time")
+        releaseMetrics(suspension.node)
+        startScheduler?.release(suspension.node)
+        try {
+            server.loadBalancer.handleDisconnect(suspension.event)
+        } catch (e: Exception) {
+            log.error("[WS] Error while balancing shards of ${suspension.node.id}", e)
+        }
+    }
+
+    private fun releaseMetrics(node: NodeImpl) {
+        val server = server as ServerImpl
+        server.clusterMetrics.remove(node.id)
+        server.metricsHistory.remove(node.id)
+    }
+
+    private fun resume(session: WsSession, suspension: Suspension) {
+        suspension.expiry.cancel(false)
+        val node = suspension.node
+        node.session = session
+        addNode(node)
+        heartbeatSupervisor.register(node)
+        sendHello(session, node, true)
+        startScheduler?.resume(node)
+        log.info("[WS] ${node.id} resumed its session on ${session.id}")
+        callEvent(WebSocketResumedEvent(server, this, session))
+    }
+
     private fun handleMessage(session: WsSession, msg: String) {
-        log.info("[WS] Received message from node {} with content {}", session.id, msg)
-        callEvent(WebSocketMessageEvent(server, this, session, msg))
+        if (log.isDebugEnabled) {
+            log.debug("[WS] Received message of {} chars from node {}", msg.length, session.id)
+        }
+        val event = WebSocketMessageEvent(server, this, session, msg)
+        if (!connections.containsKey(session.id)) {
+            negotiate(session, event)
+        }
+        // Traced after negotiating, so RESUME is traced as the resuming node
+        if (wireTrace.enabled) {
+            event.payload?.let { wireTrace.record(WireTrace.Direction.INBOUND, peer(session), it, msg) }
+        }
+        dispatch(event)
+    }
+
+    private fun handleBinaryMessage(session: WsSession, data: ByteArray) {
+        val codec = connections[session.id]?.codec
+        if (codec == null || !codec.binary) {
+            log.warn("[WS] Received binary message from node {} without negotiated binary codec", session.id)
+            return
+        }
+        val payload = try {
+            codec.decode(data)
+        } catch (e: IOException) {
+            log.warn("[WS] Could not decode binary message from node ${session.id}", e)
+            return
+        }
+        if (wireTrace.enabled) {
+            wireTrace.record(WireTrace.Direction.INBOUND, peer(session), payload)
+        }
+        dispatch(WebSocketMessageEvent(server, this, session, payload))
+    }
+
+    private fun dispatch(event: WebSocketMessageEvent) {
+        packetProcessor.process(event)
+        if (messageEvents) {
+            callEvent(event)
+        }
     }
 
     private fun handleError(session: WsSession, throwable: Throwable?) {
@@ -91,11 +284,85 @@ class WebsocketImpl(ws: WsHandler, private val server: Server) : Websocket {
         log.error("[WS] An error occurred on session $session", throwable)
     }
 
+    private fun negotiate(session: WsSession, event: WebSocketMessageEvent) {
+        val payload = event.payload ?: return
+        val identify = when (payload.type) {
+            IdentifyPacket.IDENTIFIER -> event.packet<IdentifyPacket>()
+            ResumePacket.IDENTIFIER -> event.packet<ResumePacket>()
+            else -> return
+        } ?: return
+        val version = Math.min(identify.version, Payload.VERSION)
+        // Binary codecs require the embedded packets of the current protocol version
+        val codec = if (version < Payload.VERSION) PacketCodecs.DEFAULT else PacketCodecs.negotiate(identify.codecs.asList(), codecs)
+        connections[session.id] = Connection(version, codec, (identify as? ResumePacket)?.sessionId)
+    }
+
+    /*
+     * Nodes which sent RESUME but are not resumed have to stop their shards
+     */
+    private fun sendHello(session: WsSession, node: NodeImpl, resumed: Boolean) {
+        val connection = connections[session.id]
+        val version = connection?.protocolVersion ?: Payload.LEGACY_VERSION
+        // Legacy nodes do not know the version and codec fields so they are only sent if they got negotiated
+        val hello = if (version > Payload.LEGACY_VERSION) {
+            HelloPacket(
+                    server.config.getInt(Config.SOCKET_HEARTBEAT),
+                    version,
+                    connection!!.codec.name,
+                    node.sessionId,
+                    resumed
+            )
+        } else {
+            HelloPacket(server.config.getInt(Config.SOCKET_HEARTBEAT))
+        }
+        // HELLO is always sent as text since the node switches its codec after receiving it
+        send(session, Payload.of(hello, HelloPacket.IDENTIFIER).toJson(version))
+        connection?.established = true
+    }
+
+    /**
+     * Returns the payload protocol version negotiated with the [session].
+     * @param session the session
+     * @return the protocol version
+     */
+    fun protocolVersion(session: WsSession): Int {
+        return connections[session.id]?.protocolVersion ?: Payload.LEGACY_VERSION
+    }
+
     override fun send(session: WsSession, message: String) {
         session.send(message)
     }
 
+    override fun send(session: WsSession, payload: Payload) {
+        if (wireTrace.enabled) {
+            wireTrace.record(WireTrace.Direction.OUTBOUND, peer(session), payload)
+        }
+        val connection = connections[session.id]
+        if (connection == null) {
+            send(session, payload.toJson())
+            return
+        }
+        val codec = connection.codec
+        if (connection.established && codec.binary) {
+            session.remote.sendBytes(ByteBuffer.wrap(codec.encode(payload)))
+        } else {
+            send(session, payload.toJson(connection.protocolVersion))
+        }
+    }
+
+    /**
+     * Stops the [heartbeatSupervisor].
+     */
+    internal fun close() {
+        heartbeatSupervisor.close()
+        scheduler.shutdownNow()
+    }
+
     private fun callEvent(event: WebSocketEvent) {
         server.eventManager.handle(event)
     }
-}
\ No newline at end of file
+
+    private class Suspension(val node: NodeImpl, val event: WebSocketCloseEvent) {
+        lateinit var expiry: ScheduledFuture<*>
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.server.core.internal.websocket
+
+import cc.hawkbot.regnum.entities.packets.HeartBeatPacket
+import cc.hawkbot.regnum.entities.packets.IdentifyPacket
+import cc.hawkbot.regnum.entities.packets.ResumePacket
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket
+import cc.hawkbot.regnum.entities.packets.discord.StartRequestPacket
+import cc.hawkbot.regnum.server.core.internal.LoadBalancerImpl
+import cc.hawkbot.regnum.server.plugin.events.websocket.WebSocketMessageEvent
+import cc.hawkbot.regnum.server.plugin.net.ServerPacketHandler
+
+class HeartbeatHandler : ServerPacketHandler<HeartBeatPacket>(HeartBeatPacket.IDENTIFIER, HeartBeatPacket::class) {
+    override fun processPacket(packet: HeartBeatPacket, event: WebSocketMessageEvent) {
+        (event.websocket as WebsocketImpl).heartbeatSupervisor.beat(event.session.id, packet)
+    }
+}
+
+class StartRequestHandler : ServerPacketHandler<StartRequestPacket>(StartRequestPacket.IDENTIFIER, StartRequestPacket::class) {
+    override fun processPacket(packet: StartRequestPacket, event: WebSocketMessageEvent) {
+        val node = event.websocket.findNode(event.session) ?: return
+        // Nodes only get slots for shards they are running
+        if (packet.shard !in node.shards) {
+            return
+        }
+        // Custom load balancers do not coordinate shard starts
+        val loadBalancer = event.server.loadBalancer as? LoadBalancerImpl ?: return
+        loadBalancer.startScheduler.request(node, packet.shard)
+    }
+}
+
+class ShardStatusHandler : ServerPacketHandler<ShardStatusPacket>(ShardStatusPacket.IDENTIFIER, ShardStatusPacket::class) {
+    override fun processPacket(packet: ShardStatusPacket, event: WebSocketMessageEvent) {
+        val node = event.websocket.findNode(event.session) ?: return
+        // Custom load balancers do not track the shard status
+        val loadBalancer = event.server.loadBalancer as? LoadBalancerImpl ?: return
+        loadBalancer.updateStatus(node, packet)
+    }
+}
+
+class ResumeAuthorizer(private val authorizer: ServerPacketHandler<IdentifyPacket>) : ServerPacketHandler<ResumePacket>(ResumePacket.IDENTIFIER, ResumePacket::class) {
+    override fun processPacket(packet: ResumePacket, event: WebSocketMessageEvent) = authorizer.processPacket(packet, event)
+}
@@ -20,35 +20,113 @@
 package cc.hawkbot.regnum.server.core.internal.websocket.entities
 
 import cc.hawkbot.regnum.entities.Payload
+import cc.hawkbot.regnum.entities.packets.MetricsPacket
 import cc.hawkbot.regnum.entities.packets.discord.AddPacket
+import cc.hawkbot.regnum.entities.packets.discord.RemovePacket
 import cc.hawkbot.regnum.entities.packets.discord.StartPacket
+import cc.hawkbot.regnum.server.core.internal.LoadBalancerImpl
+import cc.hawkbot.regnum.server.core.internal.websocket.WebsocketImpl
 import cc.hawkbot.regnum.server.plugin.Server
 import cc.hawkbot.regnum.server.plugin.Websocket
 import cc.hawkbot.regnum.server.plugin.entities.Node
 import cc.hawkbot.regnum.server.plugin.entities.Pulse
+import cc.hawkbot.regnum.util.logging.Logger
 import io.javalin.websocket.WsSession
 
 /**
  * Implementation of [Node].
- * @param server the [WsSession]
+ * @param session the [WsSession]
  * @param websocket the [Websocket]
  * @param server the server
+ * @property sessionId the id the node can resume its session with or `null` if the node can not resume
  */
-class NodeImpl(override val session: WsSession, override val websocket: Websocket, server: Server) : Node {
+class NodeImpl(
+        session: WsSession,
+        override val websocket: Websocket,
+        server: Server,
+        val sessionId: String? = null
+) : Node {
+
+    /**
+     * The current session which is replaced when the node resumes on a new connection.
+     */
+    @Volatile
+    override var session: WsSession = session
+        internal set
+
+    // The id of the first session identifies the node across resumes
+    override val id: String = session.id
 
     // No shards for now
     override var shards: Array<Int> = arrayOf()
-    override val pulse: Pulse = PulseImpl(server, this)
+    override val pulse: Pulse = PulseImpl()
     private val loadBalancer = server.loadBalancer
+    private val log = Logger.getLogger()
+
+    /**
+     * The latest received [MetricsPacket] or `null` if the node did not send metrics yet.
+     */
+    @Volatile
+    var latestMetrics: MetricsPacket? = null
+
+    override val metrics: MetricsPacket
+        get() = latestMetrics ?: throw IllegalStateException("Node $id did not send metrics yet")
+
+    /**
+     * Whether the node received a [StartPacket] and therefore runs a Discord instance shards can be added to.
+     */
+    @Volatile
+    var started = false
+        private set
+
+    /**
+     * The payload protocol version negotiated with the node.
+     */
+    val protocolVersion: Int
+        get() = (websocket as? WebsocketImpl)?.protocolVersion(session) ?: Payload.LEGACY_VERSION
+
+    /**
+     * Whether the node only speaks the legacy protocol. Legacy nodes ignore REMOVE_SHARD, can not decode ADD and
+     * create a second Discord instance on another START, so they can only receive shards until they got started.
+     */
+    val legacy: Boolean
+        get() = protocolVersion <= Payload.LEGACY_VERSION
+
+    /**
+     * Whether shards can be added to the node.
+     */
+    val acceptsShards: Boolean
+        get() = !legacy || !started
 
     override fun startShards(shards: Array<Int>) {
         this.shards = shards
-        send(Payload.of(StartPacket(loadBalancer.token, shards, loadBalancer.optimalShards), StartPacket.IDENTIFIER))
+        started = true
+        // Legacy nodes do not know START_REQUEST and custom load balancers do not grant starts
+        val coordinated = protocolVersion > Payload.LEGACY_VERSION && loadBalancer is LoadBalancerImpl
+        send(Payload.of(StartPacket(loadBalancer.token, shards, loadBalancer.optimalShards, coordinated), StartPacket.IDENTIFIER))
     }
 
     override fun addShards(shards: Array<Int>) {
+        // Nodes without Discord instance have to be started first
+        if (!started) {
+            startShards(shards)
+            return
+        }
+        if (legacy) {
+            log.warn("[Node] Can not add shards ${shards.joinToString()} to legacy node $id")
+            return
+        }
         this.shards += shards
         send(Payload.of(AddPacket(shards), AddPacket.IDENTIFIER))
     }
 
+    override fun removeShards(shards: Array<Int>) {
+        if (legacy) {
+            log.warn("[Node] Can not remove shards ${shards.joinToString()} from legacy node $id")
+            return
+        }
+        this.shards = this.shards.filterNot { it in shards }.toTypedArray()
+        send(Payload.of(RemovePacket(shards), RemovePacket.IDENTIFIER))
+    }
+
 }
\ No newline at end of file
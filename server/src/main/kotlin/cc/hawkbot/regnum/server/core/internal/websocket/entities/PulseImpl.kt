@@ -19,49 +19,16 @@
 
 package cc.hawkbot.regnum.server.core.internal.websocket.entities
 
-import cc.hawkbot.regnum.entities.Payload
-import cc.hawkbot.regnum.entities.packets.HeartBeatAckPacket
-import cc.hawkbot.regnum.entities.packets.HeartBeatPacket
-import cc.hawkbot.regnum.server.plugin.Server
-import cc.hawkbot.regnum.server.plugin.entities.Node
+import cc.hawkbot.regnum.server.core.internal.websocket.HeartbeatSupervisor
 import cc.hawkbot.regnum.server.plugin.entities.Pulse
-import cc.hawkbot.regnum.server.plugin.events.websocket.WebSocketMessageEvent
-import cc.hawkbot.regnum.server.plugin.io.config.Config
-import cc.hawkbot.regnum.util.logging.Logger
-import java.util.concurrent.TimeUnit
 
 /**
  * Implementation of [Pulse].
- * @param server the [Server]
- * @param node the [Node]
+ * Heartbeats are recorded and checked by the [HeartbeatSupervisor].
  * @constructor Constructs a new pulse
  */
-class PulseImpl(private val server: Server, private val node: Node) : Pulse {
-
-    companion object {
-        const val MARGIN = 200
-    }
+class PulseImpl : Pulse {
 
+    @Volatile
     override var lastHeartbeat: Long = System.currentTimeMillis()
-    private val log = Logger.getLogger()
-
-    init {
-        waitForHeartbeat()
-    }
-
-    private fun waitForHeartbeat() {
-        val future = server.eventWaiter.waitFor(WebSocketMessageEvent::class.java, {
-            it.session == node.session && it.payload.type == HeartBeatPacket.IDENTIFIER
-        }, (server.config.get<Long>(Config.SOCKET_HEARTBEAT) + MARGIN), TimeUnit.SECONDS)
-        future.exceptionally {
-            @Suppress("SpellCheckingInspection")
-            log.warn("[WS] Disconnecting node ${node.session.id} for not sending heartbeat")
-            node.session.disconnect()
-            return@exceptionally null
-        }.thenAccept {
-            lastHeartbeat = System.currentTimeMillis()
-            node.send(Payload.of(HeartBeatAckPacket(), HeartBeatAckPacket.IDENTIFIER))
-            waitForHeartbeat()
-        }
-    }
-}
\ No newline at end of file
+}
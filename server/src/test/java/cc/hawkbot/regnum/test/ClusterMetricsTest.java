@@ -0,0 +1,102 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.entities.packets.MetricsPacket;
+import cc.hawkbot.regnum.server.core.internal.ClusterMetrics;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClusterMetricsTest {
+
+    @Test
+    public void updateReplacesPreviousSample() {
+        var metrics = new ClusterMetrics();
+        metrics.update("a", metrics(100, 1000));
+        metrics.update("b", metrics(300, 2000));
+        metrics.update("a", metrics(200, 1500));
+        var snapshot = metrics.getSnapshot();
+        assertEquals(2, snapshot.getNodes());
+        assertEquals(250, snapshot.getAverage().getDiscordGatewayPing());
+        assertEquals(3500, snapshot.getAverage().getUsedMemory());
+    }
+
+    @Test
+    public void removeSubtractsSample() {
+        var metrics = new ClusterMetrics();
+        metrics.update("a", metrics(100, 1000));
+        metrics.update("b", metrics(300, 2000));
+        metrics.remove("b");
+        metrics.remove("c");
+        var snapshot = metrics.getSnapshot();
+        assertEquals(1, snapshot.getNodes());
+        assertEquals(100, snapshot.getAverage().getDiscordGatewayPing());
+        assertEquals(1000, snapshot.getTotal().getUsedMemory());
+    }
+
+    @Test
+    public void percentiles() {
+        var metrics = new ClusterMetrics();
+        for (int i = 1; i <= 20; i++) {
+            metrics.update(String.valueOf(i), metrics(i * 10, i));
+        }
+        var snapshot = metrics.getSnapshot();
+        assertEquals(190, snapshot.percentile(0.95).getDiscordGatewayPing());
+        assertEquals(100, snapshot.percentile(0.5).getDiscordGatewayPing());
+        assertEquals(10, snapshot.percentile(0).getDiscordGatewayPing());
+        assertEquals(20, snapshot.percentile(1).getUsedMemory());
+    }
+
+    @Test
+    public void snapshotsKeepTheirSamples() {
+        var metrics = new ClusterMetrics();
+        metrics.update("a", metrics(100, 1000));
+        metrics.update("b", metrics(300, 2000));
+        var snapshot = metrics.getSnapshot();
+        metrics.update("a", metrics(500, 1000));
+        metrics.remove("b");
+        metrics.update("c", metrics(700, 1000));
+        assertEquals(300, snapshot.percentile(1).getDiscordGatewayPing());
+        assertEquals(100, snapshot.percentile(0).getDiscordGatewayPing());
+        assertEquals(700, metrics.getSnapshot().percentile(1).getDiscordGatewayPing());
+        assertEquals(500, metrics.getSnapshot().percentile(0).getDiscordGatewayPing());
+    }
+
+    @Test
+    public void manyNodes() {
+        var metrics = new ClusterMetrics();
+        for (int i = 0; i < 200; i++) {
+            metrics.update(String.valueOf(i), metrics(i, 1));
+        }
+        for (int i = 0; i < 200; i += 2) {
+            metrics.remove(String.valueOf(i));
+        }
+        metrics.update("new", metrics(1000, 1));
+        var snapshot = metrics.getSnapshot();
+        assertEquals(101, snapshot.getNodes());
+        assertEquals(1, snapshot.percentile(0).getDiscordGatewayPing());
+        assertEquals(1000, snapshot.percentile(1).getDiscordGatewayPing());
+        assertEquals(101, snapshot.getTotal().getUsedMemory());
+    }
+
+    private MetricsPacket metrics(long gatewayPing, long usedMemory) {
+        return new MetricsPacket(0, gatewayPing, usedMemory, 4096, 4, 4, 10, 100);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.entities.packets.MetricsPacket;
+import cc.hawkbot.regnum.server.core.internal.MetricsHistoryHandler;
+import cc.hawkbot.regnum.server.core.internal.MetricsHistoryImpl;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MetricsHistoryTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long NOW = 1000 * HOUR;
+
+    @Test
+    public void averagesSamplesPerBucket() {
+        var history = new MetricsHistoryImpl();
+        history.record("a", metrics(100), NOW - 2 * MINUTE);
+        history.record("a", metrics(200), NOW - 2 * MINUTE + 10);
+        history.record("a", metrics(400), NOW);
+        var series = history.series("a", 5 * MINUTE, NOW);
+        assertEquals(MINUTE, series.getResolution());
+        assertArrayEquals(new long[]{NOW - 2 * MINUTE, NOW}, series.getTimestamps());
+        assertArrayEquals(new long[]{150, 400}, series.values("discordGatewayPing"));
+        assertEquals(400, series.metrics(1).getDiscordGatewayPing());
+    }
+
+    @Test
+    public void longRangesUseCoarserBuckets() {
+        var history = new MetricsHistoryImpl();
+        history.record("a", metrics(100), NOW - 30 * HOUR);
+        history.record("a", metrics(300), NOW - 30 * HOUR + 5 * MINUTE);
+        history.record("a", metrics(500), NOW);
+        var series = history.series("a", 36 * HOUR, NOW);
+        assertEquals(10 * MINUTE, series.getResolution());
+        assertArrayEquals(new long[]{200, 500}, series.values("discordGatewayPing"));
+        // Exceeds the retention of the finest resolution
+        assertEquals(1, history.series("a", 5 * HOUR, NOW).getSize());
+    }
+
+    @Test
+    public void overwrittenBucketsAreSkipped() {
+        var history = new MetricsHistoryImpl();
+        history.record("a", metrics(100), NOW - 300 * MINUTE);
+        history.record("a", metrics(200), NOW - 60 * MINUTE);
+        // Slot of NOW - 300 minutes gets reused by NOW - 60 minutes, late samples are dropped
+        history.record("a", metrics(300), NOW - 300 * MINUTE);
+        var series = history.series("a", 4 * HOUR, NOW);
+        assertArrayEquals(new long[]{200}, series.values("discordGatewayPing"));
+    }
+
+    @Test
+    public void removedNodesHaveNoHistory() {
+        var history = new MetricsHistoryImpl();
+        history.record("a", metrics(100), NOW);
+        history.recordCluster(metrics(100), NOW);
+        history.remove("a");
+        assertNull(history.series("a", HOUR, NOW));
+        assertEquals(1, history.series(null, HOUR, NOW).getSize());
+    }
+
+    @Test
+    public void parsesRanges() {
+        assertEquals(Duration.ofMinutes(30), MetricsHistoryHandler.parseRange("30m"));
+        assertEquals(Duration.ofDays(14), MetricsHistoryHandler.parseRange("14d"));
+        assertNull(MetricsHistoryHandler.parseRange("15d"));
+        assertNull(MetricsHistoryHandler.parseRange("30x"));
+        // Overflows the duration instead of exceeding the retention
+        assertNull(MetricsHistoryHandler.parseRange("9999999999999999d"));
+        assertNull(MetricsHistoryHandler.parseRange("99999999999999999999s"));
+    }
+
+    private MetricsPacket metrics(long gatewayPing) {
+        return new MetricsPacket(0, gatewayPing, 1024, 4096, 4, 4, 10, 100);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.entities.packets.MetricsPacket;
+import cc.hawkbot.regnum.server.core.internal.ShardPlacement;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ShardPlacementTest {
+
+    private static Integer[] shards(int count) {
+        var shards = new Integer[count];
+        for (var i = 0; i < count; i++) {
+            shards[i] = i;
+        }
+        return shards;
+    }
+
+    private static int[] sizes(Integer[][] placement) {
+        return Arrays.stream(placement).mapToInt(it -> it.length).toArray();
+    }
+
+    @Test
+    public void spreadsRemainder() {
+        var placement = ShardPlacement.INSTANCE.assign(4, shards(10));
+        assertArrayEquals(new int[]{3, 3, 2, 2}, sizes(placement));
+        assertArrayEquals(new Integer[]{0, 1, 2}, placement[0]);
+        assertArrayEquals(new Integer[]{8, 9}, placement[3]);
+    }
+
+    @Test
+    public void weightsByCapacity() {
+        var placement = ShardPlacement.INSTANCE.assign(new double[]{1, 3}, new double[2], shards(8));
+        assertArrayEquals(new int[]{2, 6}, sizes(placement));
+    }
+
+    @Test
+    public void accountsForExistingLoad() {
+        var placement = ShardPlacement.INSTANCE.assign(new double[]{1, 1, 1}, new double[]{4, 1, 0}, shards(5));
+        assertArrayEquals(new int[]{0, 2, 3}, sizes(placement));
+    }
+
+    @Test
+    public void capacityIsBoundByScarcerResource() {
+        var small = new MetricsPacket(0, 0, 0, 1024, 0, 2, 0, 0);
+        var large = new MetricsPacket(0, 0, 0, 1024, 0, 6, 0, 0);
+        var capacities = ShardPlacement.INSTANCE.capacities(Arrays.asList(small, large, null));
+        // The large node has more CPUs but the same heap
+        assertEquals(0.5, capacities[0], 0.001);
+        assertEquals(1.0, capacities[1], 0.001);
+        assertEquals(1.0, capacities[2], 0.001);
+
+        var bigHeap = new MetricsPacket(0, 0, 0, 3072, 0, 6, 0, 0);
+        capacities = ShardPlacement.INSTANCE.capacities(Arrays.asList(small, bigHeap));
+        assertEquals(0.5, capacities[0], 0.001);
+        assertEquals(1.5, capacities[1], 0.001);
+    }
+
+    @Test
+    public void loadsAreWeightedByGuilds() {
+        var busy = new MetricsPacket(0, 0, 0, 0, 0, 0, 3000, 0);
+        var quiet = new MetricsPacket(0, 0, 0, 0, 0, 0, 1000, 0);
+        var loads = ShardPlacement.INSTANCE.loads(new int[]{2, 2, 1}, Arrays.asList(busy, quiet, null));
+        assertEquals(3.0, loads[0], 0.001);
+        assertEquals(1.0, loads[1], 0.001);
+        assertEquals(1.0, loads[2], 0.001);
+    }
+
+    @Test
+    public void joiningNodeOnlyTakesSurplus() {
+        var current = Arrays.asList(new Integer[]{0, 1, 2, 3}, new Integer[]{4, 5, 6, 7}, new Integer[0]);
+        var moves = ShardPlacement.INSTANCE.rebalance(current, new double[]{1, 1, 1}, new Integer[0]);
+        assertArrayEquals(new Integer[]{3}, moves.get(0).getRemove());
+        assertArrayEquals(new Integer[]{7}, moves.get(1).getRemove());
+        assertArrayEquals(new Integer[0], moves.get(0).getAdd());
+        assertArrayEquals(new Integer[0], moves.get(1).getAdd());
+        assertArrayEquals(new Integer[]{3, 7}, moves.get(2).getAdd());
+    }
+
+    @Test
+    public void balancedNodesDoNotMove() {
+        var current = Arrays.asList(new Integer[]{0, 1, 2}, new Integer[]{3, 4});
+        var moves = ShardPlacement.INSTANCE.rebalance(current, new double[]{1, 1}, new Integer[0]);
+        for (var move : moves) {
+            assertEquals(0, move.getAdd().length);
+            assertEquals(0, move.getRemove().length);
+        }
+    }
+
+    @Test
+    public void unassignedShardsFillDeficits() {
+        var current = Arrays.asList(new Integer[]{0, 1}, new Integer[]{2});
+        var moves = ShardPlacement.INSTANCE.rebalance(current, new double[]{1, 1}, new Integer[]{3});
+        assertEquals(0, moves.get(0).getAdd().length);
+        assertArrayEquals(new Integer[]{3}, moves.get(1).getAdd());
+    }
+}
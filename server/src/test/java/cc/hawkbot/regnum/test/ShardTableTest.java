@@ -0,0 +1,62 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.entities.packets.discord.ShardStatusPacket.Status;
+import cc.hawkbot.regnum.server.core.internal.ShardTable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShardTableTest {
+
+    @Test
+    public void unreportedShardsHaveNoStatus() {
+        var table = new ShardTable(4);
+        assertNull(table.status(2));
+        assertNull(table.owner(2));
+        assertFalse(table.update(4, "a", Status.READY));
+    }
+
+    @Test
+    public void previousOwnerCanNotDisconnectMovedShard() {
+        var table = new ShardTable(4);
+        table.update(1, "a", Status.READY);
+        table.update(1, "b", Status.CONNECTING);
+        assertFalse(table.update(1, "a", Status.DISCONNECTED));
+        assertEquals(Status.CONNECTING, table.status(1));
+        assertEquals("b", table.owner(1));
+    }
+
+    @Test
+    public void disconnectMarksAllShardsOfNode() {
+        var table = new ShardTable(4);
+        table.update(0, "a", Status.READY);
+        table.update(1, "a", Status.READY);
+        table.update(2, "b", Status.READY);
+        table.disconnect("a");
+        assertEquals(2, table.count(Status.DISCONNECTED));
+        assertEquals(1, table.count(Status.READY));
+        assertTrue(table.update(0, "b", Status.CONNECTING));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.entities.Payload;
+import cc.hawkbot.regnum.entities.packets.discord.StartGrantPacket;
+import cc.hawkbot.regnum.server.core.internal.StartScheduler;
+import cc.hawkbot.regnum.server.plugin.entities.Node;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class StartSchedulerTest {
+
+    private static final long INTERVAL = StartScheduler.IDENTIFY_INTERVAL;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final List<Integer> grants = new CopyOnWriteArrayList<>();
+    private final Node node = node();
+    private volatile boolean connected = true;
+    private final StartScheduler scheduler = new StartScheduler(16, 1000, 1000, 0, node -> connected, executor);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void grantsConnectedNodes() throws ExecutionException, InterruptedException {
+        scheduler.request(node, 0);
+        scheduler.request(node, 1);
+        await();
+        assertEquals(List.of(0, 1), grants);
+    }
+
+    @Test
+    public void grantsDueWhileSuspendedAreSentOnResume() throws ExecutionException, InterruptedException {
+        scheduler.request(node, 0);
+        await();
+        connected = false;
+        scheduler.suspend(node);
+        scheduler.request(node, 1);
+        scheduler.request(node, 2);
+        await();
+        assertEquals(List.of(0), grants);
+        connected = true;
+        scheduler.resume(node);
+        assertEquals(List.of(0, 1, 2), grants);
+    }
+
+    @Test
+    public void grantsOfExpiredNodesAreDropped() throws ExecutionException, InterruptedException {
+        connected = false;
+        scheduler.suspend(node);
+        scheduler.request(node, 1);
+        await();
+        scheduler.release(node);
+        scheduler.resume(node);
+        scheduler.request(node, 2);
+        await();
+        assertEquals(List.of(), grants);
+    }
+
+    @Test
+    public void spacesIdentifiesPerBucket() {
+        var scheduled = new Recorder();
+        var scheduler = scheduled.scheduler(2, 1000, 1000, TimeUnit.DAYS.toMillis(1));
+        for (var shard = 0; shard < 5; shard++) {
+            scheduler.request(node, shard);
+        }
+        // Shards 0, 2 and 4 share bucket 0, shards 1 and 3 bucket 1
+        assertEquals(List.of(0L, 0L, INTERVAL, INTERVAL, 2 * INTERVAL), scheduled.delays);
+        scheduled.delays.clear();
+        scheduled.now = TimeUnit.SECONDS.toNanos(12);
+        scheduler.request(node, 6);
+        scheduler.request(node, 7);
+        assertEquals(List.of(3 * INTERVAL - scheduled.now, 0L), scheduled.delays);
+    }
+
+    @Test
+    public void waitsForResetWhenExhausted() {
+        var scheduled = new Recorder();
+        var reset = TimeUnit.MINUTES.toNanos(1);
+        var scheduler = scheduled.scheduler(1, 3, 2, TimeUnit.NANOSECONDS.toMillis(reset));
+        for (var shard = 0; shard < 4; shard++) {
+            scheduler.request(node, shard);
+        }
+        // The third start exceeds the remaining starts and the bucket continues after the reset
+        assertEquals(List.of(0L, INTERVAL, reset, reset + INTERVAL), scheduled.delays);
+    }
+
+    @Test
+    public void resetRestoresRemainingStarts() {
+        var scheduled = new Recorder();
+        var scheduler = scheduled.scheduler(1, 3, 0, 1000);
+        scheduled.now = TimeUnit.SECONDS.toNanos(2);
+        scheduler.request(node, 0);
+        assertEquals(List.of(0L), scheduled.delays);
+    }
+
+    // Waits for all grants which are due immediately
+    private void await() throws ExecutionException, InterruptedException {
+        executor.schedule(() -> { }, 0, TimeUnit.NANOSECONDS).get();
+    }
+
+    /**
+     * Records the delays of the scheduled grants using a manual clock instead of running them.
+     */
+    private static class Recorder {
+
+        private final List<Long> delays = new ArrayList<>();
+        private long now;
+
+        StartScheduler scheduler(int maxConcurrency, int total, int remaining, long resetAfter) {
+            var executor = (ScheduledExecutorService) Proxy.newProxyInstance(ScheduledExecutorService.class.getClassLoader(), new Class[]{ScheduledExecutorService.class}, (proxy, method, args) -> {
+                if (!method.getName().equals("schedule")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                delays.add(((TimeUnit) args[2]).toNanos((long) args[1]));
+                return null;
+            });
+            return new StartScheduler(maxConcurrency, total, remaining, resetAfter, node -> true, executor, () -> now);
+        }
+    }
+
+    private Node node() {
+        return (Node) Proxy.newProxyInstance(Node.class.getClassLoader(), new Class[]{Node.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "send":
+                    var packet = ((Payload) args[0]).getPacket(StartGrantPacket.class);
+                    grants.add(packet.getShard());
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
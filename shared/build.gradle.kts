@@ -49,6 +49,8 @@ dependencies {
     @Suppress("SpellCheckingInspection")
     compile("com.electronwill.night-config", "yaml", project.ext["nightconfigVersion"] as String)
     compile("com.fasterxml.jackson.core", "jackson-databind", project.ext["jacksonVersion"] as String)
+    compile("com.fasterxml.jackson.dataformat", "jackson-dataformat-smile", project.ext["jacksonVersion"] as String)
+    compile("com.fasterxml.jackson.dataformat", "jackson-dataformat-cbor", project.ext["jacksonVersion"] as String)
     compile("io.sentry:sentry:1.7.16")
 
     // Kotlin
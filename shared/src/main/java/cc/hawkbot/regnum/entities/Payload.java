@@ -21,24 +21,61 @@ package cc.hawkbot.regnum.entities;
 
 import cc.hawkbot.regnum.entities.json.Json;
 import cc.hawkbot.regnum.entities.packets.Packet;
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
 
 
 /**
  * Entity that represents any kind of payload sent by the server or client.
+ * <p>
+ * Payloads are encoded as <code>{"t": type, "d": packet}</code>. In protocol version {@link #LEGACY_VERSION} the
+ * packet is a JSON encoded string, since {@link #VERSION} it is an embedded object which gets buffered as tokens
+ * while reading the envelope and bound to the packet class without being parsed a second time.
+ * Both versions can always be decoded, the version used for encoding is negotiated using
+ * {@link cc.hawkbot.regnum.entities.packets.IdentifyPacket} and {@link cc.hawkbot.regnum.entities.packets.HelloPacket}.
  */
 @SuppressWarnings("unused")
+@JsonSerialize(using = Payload.Serializer.class)
+@JsonDeserialize(using = Payload.Deserializer.class)
 public class Payload {
 
-    @JsonProperty("t")
+    /**
+     * Protocol version which encodes packets as JSON strings.
+     */
+    public static final int LEGACY_VERSION = 1;
+
+    /**
+     * Latest protocol version which embeds packets as JSON objects.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Serialization attribute that contains the protocol version used to encode the payload.
+     */
+    public static final String VERSION_ATTRIBUTE = "regnum.payload.version";
+
     private String type;
-    @JsonProperty("d")
-    private String packet;
+    // Set for outgoing payloads
+    private Packet packet;
+    // Set for incoming payloads
+    private TokenBuffer buffer;
+    private String legacyPacket;
 
     private Payload(@NotNull String type, @NotNull Packet packet) {
         this.type = type;
-        this.packet = Json.toJson(packet);
+        this.packet = packet;
     }
 
     /**
@@ -70,12 +107,23 @@ public class Payload {
     }
 
     /**
-     * Converts a payload into json.
+     * Converts a payload into json using {@link #LEGACY_VERSION}.
      *
      * @return the json object as a string
+     * @see Payload#toJson(int)
      */
     public String toJson() {
-        return Json.toJson(this);
+        return toJson(LEGACY_VERSION);
+    }
+
+    /**
+     * Converts a payload into json.
+     *
+     * @param version the protocol version which should be used
+     * @return the json object as a string
+     */
+    public String toJson(int version) {
+        return Json.toJson(Json.JACKSON.writer().withAttribute(VERSION_ATTRIBUTE, version), this);
     }
 
     /**
@@ -91,8 +139,128 @@ public class Payload {
      * Returns the packet of the payload in JSON.
      *
      * @return the packet
+     * @see Payload#getPacket(Class)
      */
     public String getPacket() {
-        return packet;
+        if (legacyPacket != null) {
+            return legacyPacket;
+        }
+        if (buffer != null) {
+            try {
+                return Json.JACKSON.readTree(buffer.asParser(Json.JACKSON)).toString();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return Json.toJson(packet);
+    }
+
+    /**
+     * Returns the packet of the payload or {@code null} if it could not be read.
+     *
+     * @param packetClass the class of the packet
+     * @param <T>         the type of the packet
+     * @return the packet
+     * @see Payload#readPacket(Class)
+     */
+    @Nullable
+    public <T> T getPacket(@NotNull Class<T> packetClass) {
+        try {
+            return readPacket(packetClass);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the packet of the payload.
+     *
+     * @param packetClass the class of the packet
+     * @param <T>         the type of the packet
+     * @return the packet
+     * @throws IOException if the packet could not be parsed or mapped onto the specified class
+     */
+    @Nullable
+    public <T> T readPacket(@NotNull Class<T> packetClass) throws IOException {
+        if (packetClass.isInstance(packet)) {
+            return packetClass.cast(packet);
+        }
+        if (buffer != null) {
+            return Json.JACKSON.readValue(buffer.asParser(Json.JACKSON), packetClass);
+        }
+        if (legacyPacket != null) {
+            return Json.JACKSON.readValue(legacyPacket, packetClass);
+        }
+        return packet == null ? null : Json.JACKSON.convertValue(packet, packetClass);
+    }
+
+    /**
+     * Serializer which writes the packet as a string or as an object depending on {@link #VERSION_ATTRIBUTE}.
+     */
+    static class Serializer extends StdSerializer<Payload> {
+
+        Serializer() {
+            super(Payload.class);
+        }
+
+        @Override
+        public void serialize(Payload payload, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            var version = provider.getAttribute(VERSION_ATTRIBUTE);
+            generator.writeStartObject();
+            generator.writeStringField("t", payload.type);
+            generator.writeFieldName("d");
+            if (version instanceof Integer && (Integer) version >= VERSION) {
+                if (payload.buffer != null) {
+                    payload.buffer.serialize(generator);
+                } else if (payload.legacyPacket != null) {
+                    generator.writeTree(Json.JACKSON.readTree(payload.legacyPacket));
+                } else {
+                    provider.defaultSerializeValue(payload.packet, generator);
+                }
+            } else {
+                generator.writeString(payload.getPacket());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Deserializer which reads the envelope in a single pass and buffers the packet tokens.
+     */
+    static class Deserializer extends StdDeserializer<Payload> {
+
+        Deserializer() {
+            super(Payload.class);
+        }
+
+        @Override
+        public Payload deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!parser.isExpectedStartObjectToken()) {
+                return (Payload) context.handleUnexpectedToken(Payload.class, parser);
+            }
+            var payload = new Payload();
+            for (var field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                var token = parser.nextToken();
+                switch (field) {
+                    case "t":
+                        payload.type = parser.getValueAsString();
+                        break;
+                    case "d":
+                        if (token == JsonToken.VALUE_STRING) {
+                            payload.legacyPacket = parser.getText();
+                        } else if (token != JsonToken.VALUE_NULL) {
+                            var buffer = new TokenBuffer(parser, context);
+                            buffer.copyCurrentStructure(parser);
+                            payload.buffer = buffer;
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return payload;
+        }
     }
 }
@@ -19,9 +19,11 @@
 
 package cc.hawkbot.regnum.entities.json;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -43,7 +45,20 @@ public class Json {
     public static ObjectMapper JACKSON;
 
     static {
-        JACKSON = new ObjectMapper();
+        JACKSON = newMapper(new JsonFactory());
+    }
+
+    /**
+     * Creates a new mapper for the specified data format which is configured like {@link #JACKSON}.
+     *
+     * @param factory the factory of the data format
+     * @return the mapper
+     */
+    @NotNull
+    public static ObjectMapper newMapper(@NotNull JsonFactory factory) {
+        return new ObjectMapper(factory)
+                // Allows adding fields to packets without breaking older nodes
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
     /**
@@ -22,12 +22,33 @@ package cc.hawkbot.regnum.entities.packets;
 /**
  * Websocket HEARTBEAT_ACK packet.
  * Used to acknowledge websocket heartbeat.
- * Sent by client
+ * Sent by server
  */
 public class HeartBeatAckPacket implements Packet {
 
     public long timestamp = System.currentTimeMillis();
 
+    /**
+     * Sequence number of the acknowledged {@link HeartBeatPacket}.
+     */
+    public long sequence;
+
+    /**
+     * Used for serialization
+     */
+    public HeartBeatAckPacket() {
+
+    }
+
+    /**
+     * Constructs a heartbeat acknowledgement.
+     *
+     * @param sequence the sequence number of the acknowledged heartbeat
+     */
+    public HeartBeatAckPacket(long sequence) {
+        this.sequence = sequence;
+    }
+
     /**
      * Type identifier
      */
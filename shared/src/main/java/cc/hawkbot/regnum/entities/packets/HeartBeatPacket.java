@@ -21,12 +21,33 @@ package cc.hawkbot.regnum.entities.packets;
 
 /**
  * Websocket heartbeat packet.
- * Sent by server
+ * Sent by client, the server echoes the {@link #sequence} in its {@link HeartBeatAckPacket}.
  */
 public class HeartBeatPacket implements Packet {
 
     public long timestamp = System.currentTimeMillis();
 
+    /**
+     * Sequence number of the heartbeat, legacy nodes do not send it.
+     */
+    public long sequence;
+
+    /**
+     * Used for serialization
+     */
+    public HeartBeatPacket() {
+
+    }
+
+    /**
+     * Constructs a heartbeat packet.
+     *
+     * @param sequence the sequence number of the heartbeat
+     */
+    public HeartBeatPacket(long sequence) {
+        this.sequence = sequence;
+    }
+
     /**
      * Type identifier
      */
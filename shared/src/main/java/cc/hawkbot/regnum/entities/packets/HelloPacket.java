@@ -19,6 +19,7 @@
 
 package cc.hawkbot.regnum.entities.packets;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -36,6 +37,23 @@ public class HelloPacket implements Packet {
     @JsonProperty("s")
     private int heartbeatInterval;
 
+    // Omitted for legacy nodes which would not know the field
+    @JsonProperty("v")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int protocolVersion;
+
+    @JsonProperty("c")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String codec;
+
+    @JsonProperty("r")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String sessionId;
+
+    @JsonProperty("rs")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean resumed;
+
     /**
      * Constructs a hello packet.
      *
@@ -45,6 +63,44 @@ public class HelloPacket implements Packet {
         this.heartbeatInterval = heartbeatInterval;
     }
 
+    /**
+     * Constructs a hello packet.
+     *
+     * @param heartbeatInterval the heartbeat interval
+     * @param protocolVersion   the negotiated payload protocol version or {@code 0} for legacy nodes
+     */
+    public HelloPacket(int heartbeatInterval, int protocolVersion) {
+        this.heartbeatInterval = heartbeatInterval;
+        this.protocolVersion = protocolVersion;
+    }
+
+    /**
+     * Constructs a hello packet.
+     *
+     * @param heartbeatInterval the heartbeat interval
+     * @param protocolVersion   the negotiated payload protocol version or {@code 0} for legacy nodes
+     * @param codec             the name of the negotiated {@link cc.hawkbot.regnum.net.codec.PacketCodec}
+     */
+    public HelloPacket(int heartbeatInterval, int protocolVersion, String codec) {
+        this(heartbeatInterval, protocolVersion);
+        this.codec = codec;
+    }
+
+    /**
+     * Constructs a hello packet.
+     *
+     * @param heartbeatInterval the heartbeat interval
+     * @param protocolVersion   the negotiated payload protocol version or {@code 0} for legacy nodes
+     * @param codec             the name of the negotiated {@link cc.hawkbot.regnum.net.codec.PacketCodec}
+     * @param sessionId         the id the node can resume the session with using a {@link ResumePacket}
+     * @param resumed           whether the node resumed its previous session
+     */
+    public HelloPacket(int heartbeatInterval, int protocolVersion, String codec, String sessionId, boolean resumed) {
+        this(heartbeatInterval, protocolVersion, codec);
+        this.sessionId = sessionId;
+        this.resumed = resumed;
+    }
+
     /**
      * Serialization
      */
@@ -60,4 +116,40 @@ public class HelloPacket implements Packet {
     public int getHeartbeatInterval() {
         return heartbeatInterval;
     }
+
+    /**
+     * Returns the negotiated payload protocol version.
+     *
+     * @return the protocol version or {@code 0} if the server does not support version negotiation
+     */
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    /**
+     * Returns the name of the codec that is used for all following payloads.
+     *
+     * @return the codec or {@code null} if the server does not support codec negotiation
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    /**
+     * Returns the id the session can be resumed with.
+     *
+     * @return the session id or {@code null} if the server does not support resuming
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Returns whether the node resumed its previous session and therefore keeps its shards.
+     *
+     * @return whether the session got resumed
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
 }
@@ -19,6 +19,8 @@
 
 package cc.hawkbot.regnum.entities.packets;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * Websocket IDENTIFY packet.
@@ -34,6 +36,13 @@ public class IdentifyPacket implements Packet {
 
     private String token;
 
+    @JsonProperty("v")
+    private int version = 1;
+
+    @JsonProperty("c")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private String[] codecs;
+
     /**
      * Constructs a IdentifyPacket
      *
@@ -43,6 +52,29 @@ public class IdentifyPacket implements Packet {
         this.token = token;
     }
 
+    /**
+     * Constructs a IdentifyPacket
+     *
+     * @param token   the authentication token
+     * @param version the highest payload protocol version supported by the node
+     */
+    public IdentifyPacket(String token, int version) {
+        this.token = token;
+        this.version = version;
+    }
+
+    /**
+     * Constructs a IdentifyPacket
+     *
+     * @param token   the authentication token
+     * @param version the highest payload protocol version supported by the node
+     * @param codecs  the names of the {@link cc.hawkbot.regnum.net.codec.PacketCodec}s supported by the node in descending order of preference
+     */
+    public IdentifyPacket(String token, int version, String[] codecs) {
+        this(token, version);
+        this.codecs = codecs;
+    }
+
     /**
      * Used for serialization
      */
@@ -58,4 +90,23 @@ public class IdentifyPacket implements Packet {
     public String getToken() {
         return token;
     }
+
+    /**
+     * Returns the highest payload protocol version supported by the node.
+     * Nodes that do not send a version only support {@link cc.hawkbot.regnum.entities.Payload#LEGACY_VERSION}.
+     *
+     * @return the protocol version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the names of the codecs supported by the node in descending order of preference.
+     *
+     * @return the codecs or an empty array if the node only supports JSON text frames
+     */
+    public String[] getCodecs() {
+        return codecs == null ? new String[0] : codecs;
+    }
 }
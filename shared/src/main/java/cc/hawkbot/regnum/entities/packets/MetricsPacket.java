@@ -19,6 +19,8 @@
 
 package cc.hawkbot.regnum.entities.packets;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 @SuppressWarnings("UnusedReturnValue")
 public class MetricsPacket implements Packet {
 
@@ -32,6 +34,9 @@ public class MetricsPacket implements Packet {
     private int cpus;
     private long guilds;
     private long users;
+    // Only sent by nodes using a partitioned event executor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private int[] eventQueueDepths;
 
     public MetricsPacket() {
 
@@ -79,4 +84,13 @@ public class MetricsPacket implements Packet {
     public long getUsers() {
         return users;
     }
+
+    public int[] getEventQueueDepths() {
+        return eventQueueDepths;
+    }
+
+    public MetricsPacket setEventQueueDepths(int[] eventQueueDepths) {
+        this.eventQueueDepths = eventQueueDepths;
+        return this;
+    }
 }
@@ -19,12 +19,48 @@
 
 package cc.hawkbot.regnum.entities.packets;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
- * Currently unused
+ * Websocket RESUME packet.
+ * Used instead of {@link IdentifyPacket} by nodes which reconnect and want to keep the shards of their previous session
  */
 @SuppressWarnings("unused")
 public class ResumePacket extends IdentifyPacket {
 
+    /**
+     * Type identifier
+     */
     public static final String IDENTIFIER = "RESUME";
 
+    @JsonProperty("r")
+    private String sessionId;
+
+    /**
+     * Constructs a ResumePacket
+     *
+     * @param token     the authentication token
+     * @param version   the highest payload protocol version supported by the node
+     * @param codecs    the names of the {@link cc.hawkbot.regnum.net.codec.PacketCodec}s supported by the node in descending order of preference
+     * @param sessionId the session id received with the last {@link HelloPacket}
+     */
+    public ResumePacket(String token, int version, String[] codecs, String sessionId) {
+        super(token, version, codecs);
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Used for serialization
+     */
+    public ResumePacket() {
+    }
+
+    /**
+     * Returns the id of the session which should be resumed.
+     *
+     * @return the session id
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
 }
@@ -33,7 +33,7 @@ public class AddPacket implements Packet {
      */
     public static final String IDENTIFIER = "ADD_SHARD";
 
-    private final Integer[] shards;
+    private Integer[] shards;
 
     /**
      * Constructs a new add packet
@@ -44,6 +44,12 @@ public class AddPacket implements Packet {
         this.shards = shards;
     }
 
+    /**
+     * Used for serialization
+     */
+    public AddPacket() {
+    }
+
     /**
      * Returns the shard ids
      *
@@ -0,0 +1,91 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.entities.packets.discord;
+
+import cc.hawkbot.regnum.entities.packets.Packet;
+
+/**
+ * Discord SHARD_STATUS packet.
+ * Packet that is used by nodes to report the state of a Discord shard to the server
+ */
+@SuppressWarnings("unused")
+public class ShardStatusPacket implements Packet {
+
+    /**
+     * Type identifier
+     */
+    public static final String IDENTIFIER = "SHARD_STATUS";
+
+    private int shard;
+    private Status status;
+
+    /**
+     * Constructs a new shard status packet
+     *
+     * @param shard  the null-based shard id
+     * @param status the status of the shard
+     */
+    public ShardStatusPacket(int shard, Status status) {
+        this.shard = shard;
+        this.status = status;
+    }
+
+    /**
+     * Used for serialization
+     */
+    public ShardStatusPacket() {
+    }
+
+    /**
+     * Returns the shard id
+     *
+     * @return the shard id
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Returns the status of the shard
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Lifecycle states of a shard.
+     */
+    public enum Status {
+        /**
+         * The shard is logging in or reconnecting.
+         */
+        CONNECTING,
+        /**
+         * The shard is connected and received its guilds.
+         */
+        READY,
+        /**
+         * The shard has no session with Discord.
+         */
+        DISCONNECTED
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.entities.packets.discord;
+
+import cc.hawkbot.regnum.entities.packets.Packet;
+
+/**
+ * Discord START_GRANT packet.
+ * Packet that is used to allow a node to identify a shard with Discord
+ */
+@SuppressWarnings("unused")
+public class StartGrantPacket implements Packet {
+
+    /**
+     * Type identifier
+     */
+    public static final String IDENTIFIER = "START_GRANT";
+
+    private int shard;
+
+    /**
+     * Constructs a new start grant packet
+     *
+     * @param shard the null-based shard id
+     */
+    public StartGrantPacket(int shard) {
+        this.shard = shard;
+    }
+
+    /**
+     * Used for serialization
+     */
+    public StartGrantPacket() {
+    }
+
+    /**
+     * Returns the shard id
+     *
+     * @return the shard id
+     */
+    public int getShard() {
+        return shard;
+    }
+}
@@ -20,6 +20,7 @@
 package cc.hawkbot.regnum.entities.packets.discord;
 
 import cc.hawkbot.regnum.entities.packets.Packet;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * Discord START packet.
@@ -36,6 +37,9 @@ public class StartPacket implements Packet {
     private String token;
     private Integer[] shards;
     private int shardsTotal;
+    // Omitted for legacy nodes which would not know the field
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean coordinated;
 
     /**
      * Constructs a new StartPacket
@@ -50,6 +54,19 @@ public class StartPacket implements Packet {
         this.shardsTotal = shardsTotal;
     }
 
+    /**
+     * Constructs a new StartPacket
+     *
+     * @param token       the Discord token
+     * @param shards      the null-based shard ids
+     * @param shardsTotal the total count of shards
+     * @param coordinated whether the node has to request a {@link StartGrantPacket} before identifying each shard
+     */
+    public StartPacket(String token, Integer[] shards, int shardsTotal, boolean coordinated) {
+        this(token, shards, shardsTotal);
+        this.coordinated = coordinated;
+    }
+
     /**
      * Used for serialization
      */
@@ -83,4 +100,14 @@ public class StartPacket implements Packet {
     public int getShardsTotal() {
         return shardsTotal;
     }
+
+    /**
+     * Returns whether the node has to send a {@link StartRequestPacket} and wait for a {@link StartGrantPacket} before
+     * identifying each shard. Servers that do not coordinate starts do not send this flag.
+     *
+     * @return whether shard starts are coordinated by the server
+     */
+    public boolean isCoordinated() {
+        return coordinated;
+    }
 }
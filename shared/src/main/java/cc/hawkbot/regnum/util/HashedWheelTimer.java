@@ -0,0 +1,341 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.util;
+
+import cc.hawkbot.regnum.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timer optimized for large amounts of short living timeouts which rarely expire, based on the hashed wheel
+ * design used by Netty.
+ * <p>
+ * Timeouts are added to and cancelled using lock-free queues in O(1), a single worker thread moves them into
+ * buckets of a wheel and expires a bucket every tick. Timeouts are therefore only approximately accurate
+ * (by one tick). Tasks are executed on the worker thread and should not block.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class HashedWheelTimer implements Closeable {
+
+    private static final org.slf4j.Logger log = Logger.getLogger(HashedWheelTimer.class);
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<TimeoutImpl> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<TimeoutImpl> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new timer with a tick duration of 10 milliseconds and 512 buckets.
+     *
+     * @param name the name of the worker thread pool
+     */
+    public HashedWheelTimer(@NotNull String name) {
+        this(new DefaultThreadFactory(name), 10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Constructs a new timer.
+     *
+     * @param threadFactory the factory for the worker thread
+     * @param tickDuration  the duration of a tick
+     * @param unit          the unit of the tick duration
+     * @param ticksPerWheel the amount of buckets, rounded up to the next power of two
+     */
+    public HashedWheelTimer(@NotNull ThreadFactory threadFactory, long tickDuration, @NotNull TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+        }
+        var size = Integer.highestOneBit(ticksPerWheel);
+        if (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.startTime = System.nanoTime();
+        this.worker = threadFactory.newThread(new Worker());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules the execution of a task.
+     *
+     * @param task  the task
+     * @param delay the delay after which the task should be executed
+     * @param unit  the unit of the delay
+     * @return a handle to cancel the timeout
+     */
+    @NotNull
+    public Timeout newTimeout(@NotNull Runnable task, long delay, @NotNull TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer got closed");
+        }
+        var deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - startTime;
+        var timeout = new TimeoutImpl(task, deadline);
+        pendingTimeouts.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the amount of timeouts which did neither expire nor got cancelled yet.
+     *
+     * @return the amount of pending timeouts
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * Stops the worker thread, pending timeouts will never expire.
+     */
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public interface Timeout {
+
+        /**
+         * Cancels the timeout.
+         *
+         * @return {@code true} if the timeout got cancelled and {@code false} if it already expired or got cancelled
+         */
+        boolean cancel();
+
+        /**
+         * Returns whether the timeout got cancelled or not.
+         *
+         * @return whether the timeout got cancelled or not
+         */
+        boolean isCancelled();
+
+        /**
+         * Returns whether the timeout expired or not.
+         *
+         * @return whether the timeout expired or not
+         */
+        boolean isExpired();
+    }
+
+    private final class Worker implements Runnable {
+
+        private long tick;
+
+        @Override
+        public void run() {
+            while (running) {
+                var deadline = waitForNextTick();
+                if (deadline < 0) {
+                    continue;
+                }
+                processCancelled();
+                transferTimeouts();
+                wheel[(int) (tick & mask)].expire(deadline);
+                tick++;
+            }
+        }
+
+        private long waitForNextTick() {
+            var deadline = tickDuration * (tick + 1);
+            while (true) {
+                var currentTime = System.nanoTime() - startTime;
+                var sleepMillis = (deadline - currentTime + 999_999) / 1_000_000;
+                if (sleepMillis <= 0) {
+                    return currentTime;
+                }
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return -1;
+                    }
+                }
+            }
+        }
+
+        private void transferTimeouts() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                var timeout = pending.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state.get() == TimeoutImpl.CANCELLED) {
+                    continue;
+                }
+                var calculated = timeout.deadline / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                // Timeouts which are already overdue are expired in the current tick
+                var ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void processCancelled() {
+            while (true) {
+                var timeout = cancelled.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+    }
+
+    private final class TimeoutImpl implements Timeout {
+
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+        // Only accessed by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private TimeoutImpl next;
+        private TimeoutImpl prev;
+
+        private TimeoutImpl(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            pendingTimeouts.decrementAndGet();
+            // Unlinked from its bucket by the worker thread
+            cancelled.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(INIT, EXPIRED)) {
+                return;
+            }
+            pendingTimeouts.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable throwable) {
+                log.warn("[Timer] A timeout task threw an exception", throwable);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, only accessed by the worker thread.
+     */
+    private static final class Bucket {
+
+        private TimeoutImpl head;
+        private TimeoutImpl tail;
+
+        private void add(TimeoutImpl timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expire(long deadline) {
+            var timeout = head;
+            while (timeout != null) {
+                var next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    }
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(TimeoutImpl timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            var next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
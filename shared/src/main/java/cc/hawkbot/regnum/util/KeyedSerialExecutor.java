@@ -0,0 +1,163 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+package cc.hawkbot.regnum.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Executor which runs tasks with the same partition key one after another in submission order on a delegate executor.
+ * <p>
+ * Unlike {@link PartitionedExecutorService} no thread is bound to a key, which makes it suitable for a thread per task
+ * executor like {@link VirtualThreads#newThreadPerTaskExecutor(String)}: every key with queued tasks occupies one
+ * thread of the delegate while keys without tasks occupy nothing. Tasks without a key are handed to the delegate
+ * directly and are not ordered.
+ */
+@SuppressWarnings("unused")
+public class KeyedSerialExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Function<Runnable, Object> keyFunction;
+    // Keys with queued or running tasks
+    private final ConcurrentHashMap<Object, Serial> serials = new ConcurrentHashMap<>();
+    private volatile boolean shutdown;
+
+    /**
+     * Constructs a new executor.
+     *
+     * @param delegate    the executor running the tasks
+     * @param keyFunction function returning the partition key of a task or {@code null} if it has none
+     */
+    public KeyedSerialExecutor(@NotNull ExecutorService delegate, @NotNull Function<Runnable, Object> keyFunction) {
+        this.delegate = delegate;
+        this.keyFunction = keyFunction;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        var key = keyFunction.apply(command);
+        if (key == null) {
+            delegate.execute(command);
+            return;
+        }
+        var start = new boolean[1];
+        var serial = serials.compute(key, (__, current) -> {
+            var it = current == null ? new Serial(key) : current;
+            it.tasks.add(command);
+            // Only the first task of an idle key starts running the queue
+            start[0] = it.pending++ == 0;
+            return it;
+        });
+        if (start[0]) {
+            try {
+                delegate.execute(serial);
+            } catch (RejectedExecutionException e) {
+                serials.remove(key, serial);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of keys with queued or running tasks.
+     *
+     * @return the amount of keys
+     */
+    public int activeKeys() {
+        return serials.size();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        delegate.shutdown();
+    }
+
+    @NotNull
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        serials.clear();
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    private class Serial implements Runnable {
+
+        private final Object key;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // Only accessed while holding the map entry
+        private int pending;
+
+        Serial(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            var done = new boolean[1];
+            while (!done[0]) {
+                var task = tasks.poll();
+                if (task != null) {
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        var thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                    }
+                }
+                // Stops if the queue got discarded by shutdownNow()
+                done[0] = true;
+                serials.computeIfPresent(key, (__, current) -> {
+                    if (current != this) {
+                        return current;
+                    }
+                    done[0] = --pending == 0;
+                    return done[0] ? null : this;
+                });
+            }
+        }
+    }
+}
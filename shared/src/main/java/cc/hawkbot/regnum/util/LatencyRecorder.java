@@ -0,0 +1,172 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.util;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a rolling window of latency samples in nanoseconds and computes percentiles over it.
+ * <p>
+ * Samples are kept in a fixed size ring so recording does not allocate, percentiles are only computed when a
+ * {@link Snapshot} is taken.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class LatencyRecorder {
+
+    private final long[] samples;
+    private long count;
+
+    /**
+     * Constructs a new recorder.
+     *
+     * @param capacity the amount of recent samples that are kept
+     */
+    public LatencyRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Records a sample.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        samples[(int) (count++ % samples.length)] = nanos;
+    }
+
+    /**
+     * Returns the amount of samples that have been recorded in total.
+     *
+     * @return the amount of samples
+     */
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Computes the percentiles of the samples currently in the window.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] window;
+        long last;
+        long total;
+        synchronized (this) {
+            if (count == 0) {
+                return Snapshot.EMPTY;
+            }
+            window = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            last = samples[(int) ((count - 1) % samples.length)];
+            total = count;
+        }
+        Arrays.sort(window);
+        return new Snapshot(total, last, percentile(window, 0.5), percentile(window, 0.99), window[window.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        var index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * Immutable view of the recorded latencies, all values are in nanoseconds.
+     */
+    public static class Snapshot {
+
+        /**
+         * Snapshot of a recorder without samples.
+         */
+        public static final Snapshot EMPTY = new Snapshot(0, -1, -1, -1, -1);
+
+        private final long count;
+        private final long last;
+        private final long p50;
+        private final long p99;
+        private final long max;
+
+        Snapshot(long count, long last, long p50, long p99, long max) {
+            this.count = count;
+            this.last = last;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        /**
+         * Returns the total amount of recorded samples.
+         *
+         * @return the amount of samples
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the latest sample or {@code -1} if there are none.
+         *
+         * @return the latest sample
+         */
+        public long getLast() {
+            return last;
+        }
+
+        /**
+         * Returns the median of the window or {@code -1} if there are no samples.
+         *
+         * @return the median
+         */
+        public long getP50() {
+            return p50;
+        }
+
+        /**
+         * Returns the 99th percentile of the window or {@code -1} if there are no samples.
+         *
+         * @return the 99th percentile
+         */
+        public long getP99() {
+            return p99;
+        }
+
+        /**
+         * Returns the maximum of the window or {@code -1} if there are no samples.
+         *
+         * @return the maximum
+         */
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Latency{count=%d, last=%.3fms, p50=%.3fms, p99=%.3fms, max=%.3fms}",
+                    count, millis(last), millis(p50), millis(p99), millis(max));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Executor which distributes tasks onto a fixed amount of single threaded lanes by a partition key.
+ * <p>
+ * Tasks with the same key are always executed on the same lane in submission order, tasks without a key are
+ * distributed round robin. Every lane has a bounded queue, the {@link OverflowPolicy} decides what happens if the
+ * queue of a lane is full.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class PartitionedExecutorService extends AbstractExecutorService {
+
+    /**
+     * Behaviour if the queue of a lane is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The submitting thread blocks until the lane accepts the task. Tasks submitted by the thread of the full lane
+         * itself are executed on it, since nobody else would ever free a slot.
+         */
+        BLOCK,
+        /**
+         * The oldest queued task of the lane gets dropped.
+         */
+        DROP_OLDEST,
+        /**
+         * The task is executed on the submitting thread, this breaks the ordering of the lane.
+         */
+        CALLER_RUNS
+    }
+
+    // Queued by shutdown() to wake up idle lanes without interrupting running tasks
+    private static final Runnable WAKE_UP = () -> {
+    };
+
+    private final Lane[] lanes;
+    private final OverflowPolicy policy;
+    private final Function<Runnable, Object> keyFunction;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean shutdown;
+
+    /**
+     * Constructs a new executor.
+     *
+     * @param lanes         the amount of lanes
+     * @param capacity      the capacity of the queue of every lane
+     * @param policy        the {@link OverflowPolicy}
+     * @param keyFunction   function returning the partition key of a task or {@code null} if it has none
+     * @param threadFactory the factory for the lane threads
+     */
+    public PartitionedExecutorService(int lanes, int capacity, @NotNull OverflowPolicy policy, @NotNull Function<Runnable, Object> keyFunction, @NotNull ThreadFactory threadFactory) {
+        if (lanes <= 0) {
+            throw new IllegalArgumentException("lanes must be greater than 0");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        this.policy = policy;
+        this.keyFunction = keyFunction;
+        this.lanes = new Lane[lanes];
+        for (var i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane(capacity, threadFactory);
+        }
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        var lane = lane(keyFunction.apply(command));
+        switch (policy) {
+            case BLOCK:
+                if (Thread.currentThread() == lane.thread) {
+                    if (!lane.queue.offer(command)) {
+                        command.run();
+                    }
+                    break;
+                }
+                try {
+                    lane.queue.put(command);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for a free slot", e);
+                }
+                break;
+            case DROP_OLDEST:
+                while (!lane.queue.offer(command)) {
+                    var oldest = lane.queue.poll();
+                    if (oldest != null && oldest != WAKE_UP) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                break;
+            case CALLER_RUNS:
+                if (!lane.queue.offer(command)) {
+                    command.run();
+                }
+                break;
+        }
+        // The lane might have terminated after the first check, tasks it did not take are rejected
+        if (shutdown && lane.queue.remove(command)) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+    }
+
+    private Lane lane(@Nullable Object key) {
+        int index;
+        if (key == null) {
+            index = roundRobin.getAndIncrement();
+        } else {
+            var hash = key.hashCode();
+            index = hash ^ (hash >>> 16);
+        }
+        return lanes[Math.floorMod(index, lanes.length)];
+    }
+
+    /**
+     * Returns the amount of lanes.
+     *
+     * @return the amount of lanes
+     */
+    public int getLanes() {
+        return lanes.length;
+    }
+
+    /**
+     * Returns the amount of queued tasks per lane.
+     *
+     * @return an array containing the queue depth of every lane
+     */
+    @NotNull
+    public int[] queueDepths() {
+        var depths = new int[lanes.length];
+        for (var i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].queue.size();
+        }
+        return depths;
+    }
+
+    /**
+     * Returns the amount of tasks dropped by {@link OverflowPolicy#DROP_OLDEST}.
+     *
+     * @return the amount of dropped tasks
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (var lane : lanes) {
+            // Wakes up idle lanes so they can terminate once their queue is empty, busy lanes check the flag anyway
+            lane.queue.offer(WAKE_UP);
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> tasks = new ArrayList<>();
+        for (var lane : lanes) {
+            lane.queue.drainTo(tasks);
+            lane.thread.interrupt();
+        }
+        tasks.removeIf(task -> task == WAKE_UP);
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (var lane : lanes) {
+            if (lane.thread.isAlive()) {
+                return false;
+            }
+        }
+        return shutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        var deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (var lane : lanes) {
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return isTerminated();
+            }
+            TimeUnit.NANOSECONDS.timedJoin(lane.thread, remaining);
+        }
+        return isTerminated();
+    }
+
+    private class Lane implements Runnable {
+
+        private final BlockingQueue<Runnable> queue;
+        private final Thread thread;
+
+        Lane(int capacity, ThreadFactory threadFactory) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = threadFactory.newThread(this);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                try {
+                    // Drain the remaining tasks without blocking after a shutdown
+                    task = shutdown ? queue.poll() : queue.take();
+                } catch (InterruptedException e) {
+                    // Interrupted by shutdownNow()
+                    continue;
+                }
+                if (task == null) {
+                    return;
+                }
+                if (task == WAKE_UP) {
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                }
+            }
+        }
+    }
+}
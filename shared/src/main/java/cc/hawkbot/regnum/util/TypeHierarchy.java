@@ -0,0 +1,73 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cache of the type hierarchy of classes used to dispatch events to listeners of super types.
+ */
+@SuppressWarnings("WeakerAccess")
+public class TypeHierarchy {
+
+    private static final ClassValue<List<Class<?>>> HIERARCHIES = new ClassValue<>() {
+        @Override
+        protected List<Class<?>> computeValue(Class<?> type) {
+            Set<Class<?>> types = new LinkedHashSet<>();
+            // Classes first so more specific types come first
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                types.add(current);
+            }
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                addInterfaces(current, types);
+            }
+            return Collections.unmodifiableList(new ArrayList<>(types));
+        }
+    };
+
+    private TypeHierarchy() {
+    }
+
+    /**
+     * Returns the type itself, all of its super classes and all implemented interfaces.
+     * Classes are ordered from the most to the least specific one, followed by the interfaces.
+     *
+     * @param type the type
+     * @return an immutable list containing the hierarchy
+     */
+    @NotNull
+    public static List<Class<?>> of(@NotNull Class<?> type) {
+        return HIERARCHIES.get(type);
+    }
+
+    private static void addInterfaces(Class<?> type, Set<Class<?>> types) {
+        for (Class<?> anInterface : type.getInterfaces()) {
+            if (types.add(anInterface)) {
+                addInterfaces(anInterface, types);
+            }
+        }
+    }
+}
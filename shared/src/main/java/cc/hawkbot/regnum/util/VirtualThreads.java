@@ -0,0 +1,85 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.util;
+
+import cc.hawkbot.regnum.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads on runtimes which support them.
+ * <p>
+ * Regnum is compiled for runtimes without virtual threads so they are looked up reflectively once. If they are not
+ * available, a cached pool of platform threads is used instead.
+ */
+@SuppressWarnings("WeakerAccess")
+public class VirtualThreads {
+
+    private static final org.slf4j.Logger log = Logger.getLogger(VirtualThreads.class);
+    private static final boolean SUPPORTED = newFactory("probe") != null;
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Returns whether the runtime supports virtual threads.
+     *
+     * @return whether virtual threads are supported
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * Creates an executor which starts a new virtual thread for every task or a cached thread pool if virtual threads
+     * are not supported.
+     *
+     * @param name the name prefix of the threads
+     * @return the executor
+     */
+    @NotNull
+    public static ExecutorService newThreadPerTaskExecutor(@NotNull String name) {
+        var factory = SUPPORTED ? newFactory(name) : null;
+        if (factory != null) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                log.warn("[VirtualThreads] Could not create virtual thread executor", e);
+            }
+        }
+        return Executors.newCachedThreadPool(new DefaultThreadFactory(name));
+    }
+
+    private static ThreadFactory newFactory(String name) {
+        try {
+            var builderClass = Class.forName("java.lang.Thread$Builder");
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-virtual-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+            // Not available or a preview feature which is not enabled
+            return null;
+        }
+    }
+}
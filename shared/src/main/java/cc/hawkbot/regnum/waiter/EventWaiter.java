@@ -63,6 +63,13 @@ public interface EventWaiter extends Closeable {
         return waitFor(JvmClassMappingKt.getJavaClass(event), predicate, timeout, timeoutUnit);
     }
 
+    /**
+     * Returns the amount of waits which are neither completed, timed out nor cancelled.
+     *
+     * @return the amount of pending waits
+     */
+    long pendingWaits();
+
     /**
      * An exception that represents that the event wasn't fired in time.
      */
@@ -0,0 +1,169 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.waiter.impl;
+
+import cc.hawkbot.regnum.util.HashedWheelTimer;
+import cc.hawkbot.regnum.util.TypeHierarchy;
+import cc.hawkbot.regnum.waiter.EventWaiter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Default implementation of {@link EventWaiter}.
+ * <p>
+ * Pending waits are indexed by their event class and completed by {@link #dispatch(Object)}, which has to be
+ * invoked for every event by a single permanent listener. Timeouts are scheduled on a {@link HashedWheelTimer}.
+ * A wait detaches itself from the index and the timer as soon as its future completes, whether it matched an event,
+ * timed out or got cancelled or completed by the caller.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class DefaultEventWaiter implements EventWaiter {
+
+    private final ConcurrentHashMap<Class<?>, Set<Waiter<?>>> waiters = new ConcurrentHashMap<>();
+    private final AtomicLong pendingWaits = new AtomicLong();
+    private final HashedWheelTimer timer;
+    private final boolean closeTimer;
+
+    /**
+     * Constructs a new event waiter with its own timer.
+     */
+    public DefaultEventWaiter() {
+        this(new HashedWheelTimer("EventWaiter"), true);
+    }
+
+    /**
+     * Constructs a new event waiter using the specified timer.
+     *
+     * @param timer the timer used for timeouts
+     */
+    public DefaultEventWaiter(@NotNull HashedWheelTimer timer) {
+        this(timer, false);
+    }
+
+    private DefaultEventWaiter(HashedWheelTimer timer, boolean closeTimer) {
+        this.timer = timer;
+        this.closeTimer = closeTimer;
+    }
+
+    @Override
+    public <T> CompletionStage<T> waitFor(@NotNull Class<T> event, @NotNull Predicate<T> predicate, long timeout, @NotNull TimeUnit timeoutUnit) {
+        var waiters = this.waiters.computeIfAbsent(event, __ -> ConcurrentHashMap.newKeySet());
+        var waiter = new Waiter<>(event, predicate, waiters, pendingWaits);
+        pendingWaits.incrementAndGet();
+        waiters.add(waiter);
+        waiter.whenComplete((__, ___) -> waiter.detach());
+        var handle = timer.newTimeout(waiter::expire, timeout, timeoutUnit);
+        waiter.timeout = handle;
+        // The wait might have completed before the timeout was known to it
+        if (waiter.isDone()) {
+            handle.cancel();
+        }
+        return waiter;
+    }
+
+    @Override
+    public long pendingWaits() {
+        return pendingWaits.get();
+    }
+
+    /**
+     * Completes all pending waits matching the event.
+     *
+     * @param event the event
+     */
+    public void dispatch(@NotNull Object event) {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        for (Class<?> type : TypeHierarchy.of(event.getClass())) {
+            var waiters = this.waiters.get(type);
+            if (waiters == null || waiters.isEmpty()) {
+                continue;
+            }
+            for (Waiter<?> waiter : waiters) {
+                waiter.test(event);
+            }
+        }
+    }
+
+    /**
+     * Cancels all pending waits and stops the timer if it is owned by this waiter.
+     */
+    @Override
+    public void close() {
+        waiters.values().forEach(waiters -> waiters.forEach(waiter -> waiter.cancel(false)));
+        if (closeTimer) {
+            timer.close();
+        }
+    }
+
+    private static final class Waiter<T> extends CompletableFuture<T> {
+
+        private final Class<T> eventClass;
+        private final Predicate<T> predicate;
+        private final Set<Waiter<?>> waiters;
+        private final AtomicLong pendingWaits;
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        private Waiter(Class<T> eventClass, Predicate<T> predicate, Set<Waiter<?>> waiters, AtomicLong pendingWaits) {
+            this.eventClass = eventClass;
+            this.predicate = predicate;
+            this.waiters = waiters;
+            this.pendingWaits = pendingWaits;
+        }
+
+        private void test(Object event) {
+            if (isDone()) {
+                return;
+            }
+            var foundEvent = eventClass.cast(event);
+            try {
+                if (!predicate.test(foundEvent)) {
+                    return;
+                }
+            } catch (Throwable throwable) {
+                completeExceptionally(throwable);
+                return;
+            }
+            complete(foundEvent);
+        }
+
+        private void expire() {
+            completeExceptionally(new TimeoutException("Timeout exceeded"));
+        }
+
+        private void detach() {
+            if (waiters.remove(this)) {
+                pendingWaits.decrementAndGet();
+            }
+            var timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+}
@@ -20,12 +20,10 @@
 package cc.hawkbot.regnum.net
 
 import cc.hawkbot.regnum.entities.Payload
-import cc.hawkbot.regnum.entities.json.Json
 import cc.hawkbot.regnum.entities.packets.Packet
 import cc.hawkbot.regnum.util.logging.Logger
 import com.fasterxml.jackson.core.JsonParseException
 import com.fasterxml.jackson.databind.JsonMappingException
-import java.lang.Exception
 
 class PacketProcessor {
 
@@ -40,14 +38,17 @@ class PacketProcessor {
 
     @Suppress("UNCHECKED_CAST")
     fun processMessage(message: String) {
-        val payload = Payload.fromJson(message)
+        processPayload(Payload.fromJson(message) ?: return)
+    }
+
+    fun processPayload(payload: Payload) {
         val handler = packets[payload.type] ?: return
         processHandler(handler, payload)
     }
 
     private fun <T : Packet> processHandler(handler: PacketHandler<T>, payload: Payload) {
         val packet: T = try {
-            Json.fromJson(handler.packetClass.java, payload.packet)
+            payload.readPacket(handler.packetClass.java)
         } catch (e: JsonParseException) {
             log.warn("[PacketProcessor] Packet could not be processed due to a parsing error", e)
             return
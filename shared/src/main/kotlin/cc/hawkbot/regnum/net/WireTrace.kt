@@ -0,0 +1,209 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.net
+
+import cc.hawkbot.regnum.entities.Payload
+import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Sampled trace of the payloads passing a websocket.
+ * The trace is disabled by default and can be restricted to certain peers and packet types at runtime. Traced
+ * payloads are rate limited using a token bucket and kept in a ring buffer which can be inspected using [dump].
+ * Payloads are only encoded for the trace if they pass all filters.
+ * @param capacity the amount of entries kept in the ring buffer
+ * @param rate the maximum amount of entries recorded per second
+ * @param nanoTime the time source of the rate limit in nanoseconds
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class WireTrace @JvmOverloads constructor(
+        capacity: Int = 1024,
+        rate: Int = 100,
+        private val nanoTime: () -> Long = System::nanoTime
+) {
+
+    companion object {
+        /**
+         * Peer id used by nodes for the server.
+         */
+        const val SERVER = "server"
+    }
+
+    /**
+     * Direction of a traced payload.
+     */
+    enum class Direction {
+        INBOUND,
+        OUTBOUND
+    }
+
+    /**
+     * A traced payload.
+     * @property timestamp the time the payload was traced at in milliseconds
+     * @property direction the [Direction]
+     * @property peer the id of the remote peer
+     * @property type the type of the payload
+     * @property content the payload encoded as json
+     */
+    class Entry(val timestamp: Long, val direction: Direction, val peer: String, val type: String?, val content: String) {
+        override fun toString() = "${Instant.ofEpochMilli(timestamp)} $direction $peer $type $content"
+    }
+
+    private val entries = arrayOfNulls<Entry>(capacity)
+    private var written = 0L
+    private val peers: MutableSet<String> = ConcurrentHashMap.newKeySet()
+    private val types: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+    // Token bucket
+    private val rate = rate.toDouble()
+    private var tokens = this.rate
+    private var lastRefill = nanoTime()
+    private val dropped = AtomicLong()
+
+    /**
+     * Whether payloads are traced or not.
+     */
+    @Volatile
+    var enabled = false
+
+    init {
+        require(capacity > 0) { "capacity must be greater than 0" }
+        require(rate > 0) { "rate must be greater than 0" }
+    }
+
+    /**
+     * Restricts the trace to the [peer], if no peer is set all peers are traced.
+     * @param peer the id of the peer
+     */
+    fun tracePeer(peer: String) {
+        peers.add(peer)
+    }
+
+    /**
+     * Removes the [peer] from the traced peers.
+     * @param peer the id of the peer
+     */
+    fun untracePeer(peer: String) {
+        peers.remove(peer)
+    }
+
+    /**
+     * Restricts the trace to packets of the [type], if no type is set all types are traced.
+     * @param type the packet identifier
+     */
+    fun traceType(type: String) {
+        types.add(type)
+    }
+
+    /**
+     * Removes the [type] from the traced packet types.
+     * @param type the packet identifier
+     */
+    fun untraceType(type: String) {
+        types.remove(type)
+    }
+
+    /**
+     * Removes all peer and packet type restrictions.
+     */
+    fun clearFilters() {
+        peers.clear()
+        types.clear()
+    }
+
+    /**
+     * Returns whether a payload of the [type] exchanged with the [peer] passes the filters.
+     * @param peer the id of the peer
+     * @param type the type of the payload
+     * @return whether the payload would be traced
+     */
+    fun isTraced(peer: String, type: String?): Boolean {
+        if (!enabled) {
+            return false
+        }
+        return (peers.isEmpty() || peer in peers) && (types.isEmpty() || (type != null && type in types))
+    }
+
+    /**
+     * Traces a [payload] if it passes the filters and rate limit.
+     * @param direction the [Direction]
+     * @param peer the id of the peer
+     * @param payload the payload
+     * @param message the raw message if it was received as text
+     */
+    @JvmOverloads
+    fun record(direction: Direction, peer: String, payload: Payload, message: String? = null) {
+        if (!isTraced(peer, payload.type)) {
+            return
+        }
+        if (!acquire()) {
+            dropped.incrementAndGet()
+            return
+        }
+        val entry = Entry(System.currentTimeMillis(), direction, peer, payload.type, message
+                ?: payload.toJson(Payload.VERSION))
+        synchronized(entries) {
+            entries[(written++ % entries.size).toInt()] = entry
+        }
+    }
+
+    private fun acquire(): Boolean {
+        synchronized(this) {
+            val now = nanoTime()
+            tokens = Math.min(rate, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1))
+            lastRefill = now
+            if (tokens < 1) {
+                return false
+            }
+            tokens--
+            return true
+        }
+    }
+
+    /**
+     * Returns the amount of payloads which were not traced because of the rate limit.
+     * @return the amount of dropped payloads
+     */
+    fun dropped() = dropped.get()
+
+    /**
+     * Returns the traced payloads currently in the ring buffer from oldest to newest.
+     * @return the traced payloads
+     */
+    fun dump(): List<Entry> {
+        synchronized(entries) {
+            val size = Math.min(written, entries.size.toLong()).toInt()
+            val start = written - size
+            return List(size) { entries[((start + it) % entries.size).toInt()]!! }
+        }
+    }
+
+    /**
+     * Clears the ring buffer.
+     */
+    fun clear() {
+        synchronized(entries) {
+            entries.fill(null)
+            written = 0
+        }
+    }
+}
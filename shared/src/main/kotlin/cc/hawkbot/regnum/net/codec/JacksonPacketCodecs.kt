@@ -0,0 +1,70 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.net.codec
+
+import cc.hawkbot.regnum.entities.Payload
+import cc.hawkbot.regnum.entities.json.Json
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory
+import com.fasterxml.jackson.dataformat.smile.SmileFactory
+
+/**
+ * [PacketCodec] based on a Jackson data format.
+ * @param factory the factory of the data format
+ * @property mapper the mapper used for encoding and decoding
+ */
+abstract class JacksonPacketCodec(factory: JsonFactory) : PacketCodec {
+
+    @Suppress("MemberVisibilityCanBePrivate")
+    val mapper: ObjectMapper = Json.newMapper(factory)
+
+    override fun encode(payload: Payload, version: Int): ByteArray {
+        return mapper.writer().withAttribute(Payload.VERSION_ATTRIBUTE, version).writeValueAsBytes(payload)
+    }
+
+    override fun decode(data: ByteArray, offset: Int, length: Int): Payload {
+        return mapper.readValue(data, offset, length, Payload::class.java)
+    }
+}
+
+/**
+ * Text codec encoding payloads as JSON.
+ */
+object JsonPacketCodec : JacksonPacketCodec(JsonFactory()) {
+    override val name = "json"
+    override val binary = false
+}
+
+/**
+ * Binary codec encoding payloads as Smile.
+ */
+object SmilePacketCodec : JacksonPacketCodec(SmileFactory()) {
+    override val name = "smile"
+    override val binary = true
+}
+
+/**
+ * Binary codec encoding payloads as CBOR.
+ */
+object CborPacketCodec : JacksonPacketCodec(CBORFactory()) {
+    override val name = "cbor"
+    override val binary = true
+}
@@ -0,0 +1,73 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.net.codec
+
+import cc.hawkbot.regnum.entities.Payload
+import java.nio.ByteBuffer
+
+/**
+ * Encodes and decodes [Payload]s for the websocket connection between server and nodes.
+ * @see PacketCodecs
+ */
+interface PacketCodec {
+
+    /**
+     * The name which is used to negotiate the codec.
+     */
+    val name: String
+
+    /**
+     * Whether the codec produces binary frames or not.
+     */
+    val binary: Boolean
+
+    /**
+     * Encodes a [payload].
+     * @param payload the payload
+     * @param version the payload protocol version
+     * @return the encoded payload
+     */
+    fun encode(payload: Payload, version: Int = Payload.VERSION): ByteArray
+
+    /**
+     * Decodes a payload from the specified [length] of [data] starting at [offset].
+     * @param data the data
+     * @param offset the offset
+     * @param length the length
+     * @return the payload
+     * @throws java.io.IOException if the data is not a valid payload
+     */
+    fun decode(data: ByteArray, offset: Int = 0, length: Int = data.size): Payload
+
+    /**
+     * Decodes a payload from the remaining bytes of the [buffer].
+     * @param buffer the buffer
+     * @return the payload
+     * @throws java.io.IOException if the data is not a valid payload
+     */
+    fun decode(buffer: ByteBuffer): Payload {
+        if (buffer.hasArray()) {
+            return decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining())
+        }
+        val data = ByteArray(buffer.remaining())
+        buffer.duplicate().get(data)
+        return decode(data)
+    }
+}
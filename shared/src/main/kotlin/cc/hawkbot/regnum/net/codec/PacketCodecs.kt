@@ -0,0 +1,62 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.net.codec
+
+/**
+ * Registry of all available [PacketCodec]s.
+ */
+@Suppress("unused")
+object PacketCodecs {
+
+    /**
+     * All codecs in descending order of preference.
+     */
+    val codecs: List<PacketCodec> = listOf(SmilePacketCodec, CborPacketCodec, JsonPacketCodec)
+
+    /**
+     * The names of all codecs in descending order of preference.
+     */
+    val names: List<String> = codecs.map { it.name }
+
+    /**
+     * The codec every node understands.
+     */
+    val DEFAULT: PacketCodec = JsonPacketCodec
+
+    /**
+     * Returns a codec by its [name].
+     * @param name the name of the codec
+     * @return the codec or `null` if there is no codec with that name
+     */
+    operator fun get(name: String): PacketCodec? = codecs.firstOrNull { it.name.equals(name, true) }
+
+    /**
+     * Picks the first codec of the [preferred] codecs that is also [supported].
+     * @param preferred the codecs preferred by the node in descending order
+     * @param supported the codecs supported by the server
+     * @return the codec or [DEFAULT] if there is no codec in common
+     */
+    fun negotiate(preferred: Collection<String>, supported: Collection<String>): PacketCodec {
+        return preferred
+                .filter { name -> supported.any { it.equals(name, true) } }
+                .mapNotNull { get(it) }
+                .firstOrNull() ?: DEFAULT
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.util.DefaultThreadFactory;
+import cc.hawkbot.regnum.util.HashedWheelTimer;
+import cc.hawkbot.regnum.waiter.impl.DefaultEventWaiter;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs 1M timed out waits and checks that they do not stay registered.
+ */
+public class EventWaiterSoakTest {
+
+    private static final int WAITS = 1_000_000;
+    private static final int BATCH = 10_000;
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    public void timedOutWaits() {
+        var timer = new HashedWheelTimer(new DefaultThreadFactory("SoakTimer"), 1, TimeUnit.MILLISECONDS, 512);
+        var waiter = new DefaultEventWaiter(timer);
+        try {
+            // The first wait of every batch, nothing may keep them reachable once they timed out
+            List<WeakReference<Object>> samples = new ArrayList<>();
+            for (int i = 0; i < WAITS / BATCH; i++) {
+                var futures = new CompletableFuture<?>[BATCH];
+                for (int j = 0; j < BATCH; j++) {
+                    futures[j] = waiter.waitFor(Integer.class, it -> false, 1, TimeUnit.MILLISECONDS).toCompletableFuture();
+                }
+                samples.add(new WeakReference<>(futures[0]));
+                // Events which never match must not keep waits alive either
+                waiter.dispatch(i);
+                CompletableFuture.allOf(futures).handle((__, ___) -> null).join();
+            }
+            // Waits detach in a dependent which can run after the join above returned
+            awaitTrue("Waits are still pending", () -> waiter.pendingWaits() == 0);
+            awaitTrue("Timeouts are still pending", () -> timer.pendingTimeouts() == 0);
+            awaitTrue("Timed out waits are still reachable", () -> {
+                System.gc();
+                return samples.stream().allMatch(it -> it.get() == null);
+            });
+        } finally {
+            waiter.close();
+            timer.close();
+        }
+    }
+
+    @Test
+    public void cancelledWaits() {
+        var waiter = new DefaultEventWaiter();
+        try {
+            for (int i = 0; i < BATCH; i++) {
+                waiter.waitFor(Integer.class, it -> true, 1, TimeUnit.HOURS).toCompletableFuture().cancel(false);
+            }
+            assertEquals(0, waiter.pendingWaits());
+            var future = waiter.waitFor(Integer.class, it -> it == 1, 1, TimeUnit.HOURS);
+            waiter.dispatch(0);
+            assertEquals(1, waiter.pendingWaits());
+            waiter.dispatch(1);
+            assertEquals(1, (int) future.toCompletableFuture().join());
+            assertEquals(0, waiter.pendingWaits());
+        } finally {
+            waiter.close();
+        }
+    }
+
+    private void awaitTrue(String message, BooleanSupplier condition) {
+        var deadline = System.nanoTime() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertTrue(message, System.nanoTime() - deadline < 0);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(message, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.util.KeyedSerialExecutor;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedSerialExecutorTest {
+
+    private final List<KeyedSerialExecutor> executors = new ArrayList<>();
+
+    @After
+    public void shutdown() {
+        executors.forEach(KeyedSerialExecutor::shutdownNow);
+    }
+
+    @Test
+    public void keepsOrderPerKey() throws InterruptedException {
+        var executor = executor();
+        Map<Integer, List<Integer>> executed = new ConcurrentHashMap<>();
+        for (var i = 0; i < 1000; i++) {
+            var key = i % 10;
+            var value = i;
+            executor.execute(new KeyedTask(key, () -> executed.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(value)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        for (var key = 0; key < 10; key++) {
+            var values = executed.get(key);
+            assertEquals(100, values.size());
+            for (var i = 0; i < values.size(); i++) {
+                assertEquals(key + i * 10, (int) values.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void runsOneTaskPerKeyAtATime() throws InterruptedException {
+        var executor = executor();
+        var running = new AtomicInteger();
+        var overlaps = new AtomicInteger();
+        for (var i = 0; i < 200; i++) {
+            executor.execute(new KeyedTask("key", () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                Thread.yield();
+                running.decrementAndGet();
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    public void runsUnkeyedTasksConcurrently() throws InterruptedException {
+        var executor = executor();
+        // Both tasks only finish if they run at the same time
+        var latch = new CountDownLatch(2);
+        var finished = new CountDownLatch(2);
+        for (var i = 0; i < 2; i++) {
+            executor.execute(new KeyedTask(null, () -> {
+                latch.countDown();
+                try {
+                    if (latch.await(10, TimeUnit.SECONDS)) {
+                        finished.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void releasesIdleKeys() throws InterruptedException {
+        var executor = executor();
+        var latch = new CountDownLatch(100);
+        for (var i = 0; i < 100; i++) {
+            executor.execute(new KeyedTask(i, latch::countDown));
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.activeKeys() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.activeKeys());
+    }
+
+    @Test
+    public void survivesFailingTasks() throws InterruptedException {
+        var executor = executor();
+        var latch = new CountDownLatch(1);
+        executor.execute(new KeyedTask("key", () -> {
+            throw new IllegalStateException("Expected");
+        }));
+        executor.execute(new KeyedTask("key", latch::countDown));
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    private KeyedSerialExecutor executor() {
+        var executor = new KeyedSerialExecutor(Executors.newCachedThreadPool(), task -> ((KeyedTask) task).key);
+        executors.add(executor);
+        return executor;
+    }
+
+    private static class KeyedTask implements Runnable {
+
+        private final Object key;
+        private final Runnable delegate;
+
+        KeyedTask(Object key, Runnable delegate) {
+            this.key = key;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.util.LatencyRecorder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void emptySnapshot() {
+        var snapshot = new LatencyRecorder(4).snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(-1, snapshot.getP99());
+    }
+
+    @Test
+    public void percentiles() {
+        var recorder = new LatencyRecorder(100);
+        for (var i = 100; i > 0; i--) {
+            recorder.record(i);
+        }
+        var snapshot = recorder.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(1, snapshot.getLast());
+        assertEquals(50, snapshot.getP50());
+        assertEquals(99, snapshot.getP99());
+        assertEquals(100, snapshot.getMax());
+    }
+
+    @Test
+    public void rollingWindow() {
+        var recorder = new LatencyRecorder(10);
+        for (var i = 1; i <= 1000; i++) {
+            recorder.record(i);
+        }
+        var snapshot = recorder.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getLast());
+        assertEquals(995, snapshot.getP50());
+        assertEquals(1000, snapshot.getMax());
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.util.PartitionedExecutorService;
+import cc.hawkbot.regnum.util.PartitionedExecutorService.OverflowPolicy;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionedExecutorServiceTest {
+
+    private final List<PartitionedExecutorService> executors = new ArrayList<>();
+
+    @After
+    public void shutdown() {
+        executors.forEach(PartitionedExecutorService::shutdownNow);
+    }
+
+    @Test
+    public void keepsOrderPerKey() throws InterruptedException {
+        var executor = executor(4, 16, OverflowPolicy.BLOCK);
+        Map<Integer, List<Integer>> executed = new ConcurrentHashMap<>();
+        for (var i = 0; i < 1000; i++) {
+            var key = i % 10;
+            var value = i;
+            executor.execute(new KeyedTask(key, () -> executed.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(value)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        for (var key = 0; key < 10; key++) {
+            var values = executed.get(key);
+            assertEquals(100, values.size());
+            for (var i = 0; i < values.size(); i++) {
+                assertEquals(key + i * 10, (int) values.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void assignsLanes() throws InterruptedException {
+        var executor = executor(4, 16, OverflowPolicy.BLOCK);
+        Map<Object, Set<Thread>> threads = new ConcurrentHashMap<>();
+        for (var i = 0; i < 100; i++) {
+            var key = i % 3;
+            executor.execute(new KeyedTask(key, () -> threads.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread())));
+        }
+        // Tasks without key are distributed round robin
+        var unkeyed = ConcurrentHashMap.<Thread>newKeySet();
+        for (var i = 0; i < 4; i++) {
+            executor.execute(new KeyedTask(null, () -> unkeyed.add(Thread.currentThread())));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        threads.values().forEach(set -> assertEquals(1, set.size()));
+        assertEquals(4, unkeyed.size());
+    }
+
+    @Test
+    public void reportsQueueDepths() throws InterruptedException {
+        var executor = executor(2, 16, OverflowPolicy.BLOCK);
+        var release = block(executor, 0);
+        for (var i = 0; i < 3; i++) {
+            executor.execute(new KeyedTask(0, () -> { }));
+        }
+        var depths = executor.queueDepths();
+        assertEquals(3, depths[lane(0, 2)]);
+        assertEquals(0, depths[lane(1, 2)]);
+        release.countDown();
+    }
+
+    @Test
+    public void blockWaitsForFreeSlot() throws InterruptedException {
+        var executor = executor(1, 1, OverflowPolicy.BLOCK);
+        var release = block(executor, 0);
+        executor.execute(new KeyedTask(0, () -> { }));
+        var executed = new CountDownLatch(1);
+        var submitter = new Thread(() -> executor.execute(new KeyedTask(0, executed::countDown)));
+        submitter.start();
+        submitter.join(200);
+        assertTrue(submitter.isAlive());
+        release.countDown();
+        submitter.join(5000);
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void blockRunsTasksOfTheFullLaneInline() throws InterruptedException {
+        var executor = executor(1, 1, OverflowPolicy.BLOCK);
+        var executed = new CountDownLatch(2);
+        executor.execute(new KeyedTask(0, () -> {
+            // Fills the queue of the own lane, the second task would wait for this lane forever
+            executor.execute(new KeyedTask(0, executed::countDown));
+            executor.execute(new KeyedTask(0, executed::countDown));
+        }));
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void dropOldest() throws InterruptedException {
+        var executor = executor(1, 2, OverflowPolicy.DROP_OLDEST);
+        var release = block(executor, 0);
+        var executed = new CopyOnWriteArrayList<Integer>();
+        for (var i = 0; i < 3; i++) {
+            var value = i;
+            executor.execute(new KeyedTask(0, () -> executed.add(value)));
+        }
+        assertEquals(1, executor.dropped());
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2), executed);
+    }
+
+    @Test
+    public void callerRuns() throws InterruptedException {
+        var executor = executor(1, 1, OverflowPolicy.CALLER_RUNS);
+        var release = block(executor, 0);
+        executor.execute(new KeyedTask(0, () -> { }));
+        var threads = new ArrayList<Thread>();
+        executor.execute(new KeyedTask(0, () -> threads.add(Thread.currentThread())));
+        assertEquals(1, threads.size());
+        assertSame(Thread.currentThread(), threads.get(0));
+        assertArrayEquals(new int[]{1}, executor.queueDepths());
+        release.countDown();
+    }
+
+    @Test
+    public void shutdownFinishesRunningTasks() throws InterruptedException {
+        var executor = executor(2, 16, OverflowPolicy.BLOCK);
+        var started = new CountDownLatch(1);
+        var interrupted = new AtomicBoolean();
+        var executed = new CountDownLatch(2);
+        executor.execute(new KeyedTask(0, () -> {
+            started.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            executed.countDown();
+        }));
+        executor.execute(new KeyedTask(0, executed::countDown));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+        assertEquals(0, executed.getCount());
+    }
+
+    @Test
+    public void shutdownRejectsOrRunsEveryTask() throws InterruptedException {
+        for (var round = 0; round < 50; round++) {
+            var executor = executor(2, 1024, OverflowPolicy.BLOCK);
+            var accepted = new AtomicInteger();
+            var executed = new AtomicInteger();
+            var submitter = new Thread(() -> {
+                for (var i = 0; i < 1000; i++) {
+                    try {
+                        executor.execute(new KeyedTask(i % 4, executed::incrementAndGet));
+                        accepted.incrementAndGet();
+                    } catch (RejectedExecutionException e) {
+                        return;
+                    }
+                }
+            });
+            submitter.start();
+            executor.shutdown();
+            submitter.join(5000);
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(accepted.get(), executed.get());
+        }
+    }
+
+    private PartitionedExecutorService executor(int lanes, int capacity, OverflowPolicy policy) {
+        var executor = new PartitionedExecutorService(lanes, capacity, policy, task -> ((KeyedTask) task).key, Thread::new);
+        executors.add(executor);
+        return executor;
+    }
+
+    // Occupies the lane of the key until the returned latch is released
+    private CountDownLatch block(PartitionedExecutorService executor, Object key) throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        executor.execute(new KeyedTask(key, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    // Mirrors the lane selection of the executor
+    private int lane(Object key, int lanes) {
+        var hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes);
+    }
+
+    private static class KeyedTask implements Runnable {
+
+        private final Object key;
+        private final Runnable task;
+
+        KeyedTask(Object key, Runnable task) {
+            this.key = key;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.entities.Payload;
+import cc.hawkbot.regnum.entities.packets.IdentifyPacket;
+import cc.hawkbot.regnum.entities.packets.discord.StartPacket;
+import cc.hawkbot.regnum.net.codec.PacketCodec;
+import cc.hawkbot.regnum.net.codec.PacketCodecs;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadTest {
+
+    private final String LEGACY = "{\"t\":\"IDENTIFY\",\"d\":\"{\\\"token\\\":\\\"token\\\",\\\"v\\\":2}\"}";
+    private final String EMBEDDED = "{\"t\":\"IDENTIFY\",\"d\":{\"token\":\"token\",\"v\":2}}";
+
+    @Test
+    public void encode() {
+        var payload = Payload.of(new IdentifyPacket("token", Payload.VERSION), IdentifyPacket.IDENTIFIER);
+        assertEquals(LEGACY, payload.toJson());
+        assertEquals(LEGACY, payload.toJson(Payload.LEGACY_VERSION));
+        assertEquals(EMBEDDED, payload.toJson(Payload.VERSION));
+    }
+
+    @Test
+    public void decode() throws IOException {
+        testPayload(Payload.fromJson(LEGACY));
+        testPayload(Payload.fromJson(EMBEDDED));
+    }
+
+    @Test
+    public void unknownFields() throws IOException {
+        var payload = Payload.fromJson("{\"s\":{\"a\":[1,2]},\"t\":\"IDENTIFY\",\"d\":{\"token\":\"token\",\"x\":true}}");
+        var identify = payload.readPacket(IdentifyPacket.class);
+        assertEquals("token", identify.getToken());
+        assertEquals(Payload.LEGACY_VERSION, identify.getVersion());
+    }
+
+    @Test
+    public void codecs() throws IOException {
+        var payload = Payload.fromJson(EMBEDDED);
+        for (PacketCodec codec : PacketCodecs.INSTANCE.getCodecs()) {
+            testPayload(codec.decode(ByteBuffer.wrap(codec.encode(payload, Payload.VERSION))));
+        }
+        assertEquals("cbor", PacketCodecs.INSTANCE.negotiate(List.of("cbor", "json"), PacketCodecs.INSTANCE.getNames()).getName());
+        assertEquals("json", PacketCodecs.INSTANCE.negotiate(List.of("zstd"), PacketCodecs.INSTANCE.getNames()).getName());
+    }
+
+    @Test
+    public void legacyStart() throws IOException {
+        // Legacy nodes fail on unknown fields, so the field is only sent to nodes which coordinate starts
+        var legacy = Payload.of(new StartPacket("token", new Integer[]{0}, 1), StartPacket.IDENTIFIER).toJson(Payload.LEGACY_VERSION);
+        assertFalse(legacy.contains("coordinated"));
+        var coordinated = Payload.of(new StartPacket("token", new Integer[]{0}, 1, true), StartPacket.IDENTIFIER);
+        assertTrue(Payload.fromJson(coordinated.toJson(Payload.VERSION)).readPacket(StartPacket.class).isCoordinated());
+    }
+
+    /**
+     * Checks the decoded payload and re-encodes it in both versions.
+     *
+     * @param payload the decoded payload
+     */
+    private void testPayload(Payload payload) throws IOException {
+        assertEquals(IdentifyPacket.IDENTIFIER, payload.getType());
+        var identify = payload.readPacket(IdentifyPacket.class);
+        assertEquals("token", identify.getToken());
+        assertEquals(Payload.VERSION, identify.getVersion());
+        assertEquals(LEGACY, payload.toJson(Payload.LEGACY_VERSION));
+        assertEquals(EMBEDDED, payload.toJson(Payload.VERSION));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Regnum - A Discord bot clustering system made for Hawk
+ *
+ * Copyright (C) 2019  Michael Rittmeister
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see https://www.gnu.org/licenses/.
+ */
+package cc.hawkbot.regnum.test;
+
+import cc.hawkbot.regnum.entities.Payload;
+import cc.hawkbot.regnum.entities.packets.IdentifyPacket;
+import cc.hawkbot.regnum.net.WireTrace;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WireTraceTest {
+
+    private final Payload payload = Payload.of(new IdentifyPacket("token", Payload.VERSION), IdentifyPacket.IDENTIFIER);
+
+    @Test
+    public void disabledByDefault() {
+        var trace = new WireTrace();
+        trace.record(WireTrace.Direction.INBOUND, "node", payload, "0");
+        assertTrue(trace.dump().isEmpty());
+    }
+
+    @Test
+    public void ringBuffer() {
+        var trace = trace(4, 100);
+        for (var i = 0; i < 10; i++) {
+            trace.record(WireTrace.Direction.INBOUND, "node", payload, String.valueOf(i));
+        }
+        // Only the newest entries are kept, from oldest to newest
+        assertEquals("6789", contents(trace));
+        trace.clear();
+        assertTrue(trace.dump().isEmpty());
+        trace.record(WireTrace.Direction.OUTBOUND, "node", payload, "a");
+        assertEquals("a", contents(trace));
+        assertEquals(WireTrace.Direction.OUTBOUND, trace.dump().get(0).getDirection());
+    }
+
+    @Test
+    public void filters() {
+        var trace = trace(16, 100);
+        trace.tracePeer("a");
+        trace.record(WireTrace.Direction.INBOUND, "a", payload, "a");
+        trace.record(WireTrace.Direction.INBOUND, "b", payload, "b");
+        assertEquals("a", contents(trace));
+        trace.traceType("OTHER");
+        trace.record(WireTrace.Direction.INBOUND, "a", payload, "c");
+        assertEquals("a", contents(trace));
+        trace.traceType(IdentifyPacket.IDENTIFIER);
+        trace.record(WireTrace.Direction.INBOUND, "a", payload, "d");
+        assertEquals("ad", contents(trace));
+        trace.clearFilters();
+        trace.record(WireTrace.Direction.INBOUND, "b", payload, "e");
+        assertEquals("ade", contents(trace));
+    }
+
+    @Test
+    public void rateLimit() {
+        var now = new long[1];
+        var trace = new WireTrace(16, 2, () -> now[0]);
+        trace.setEnabled(true);
+        // The bucket starts full
+        for (var i = 0; i < 10; i++) {
+            trace.record(WireTrace.Direction.INBOUND, "node", payload, String.valueOf(i));
+        }
+        assertEquals("01", contents(trace));
+        assertEquals(8, trace.dropped());
+        // One token is refilled every 500 milliseconds
+        now[0] = TimeUnit.MILLISECONDS.toNanos(600);
+        trace.record(WireTrace.Direction.INBOUND, "node", payload, "a");
+        trace.record(WireTrace.Direction.INBOUND, "node", payload, "b");
+        assertEquals("01a", contents(trace));
+        assertEquals(9, trace.dropped());
+        // The bucket holds at most one second of tokens
+        now[0] += TimeUnit.MINUTES.toNanos(1);
+        for (var i = 0; i < 10; i++) {
+            trace.record(WireTrace.Direction.INBOUND, "node", payload, String.valueOf(i));
+        }
+        assertEquals("01a01", contents(trace));
+        assertEquals(17, trace.dropped());
+    }
+
+    private WireTrace trace(int capacity, int rate) {
+        var trace = new WireTrace(capacity, rate);
+        trace.setEnabled(true);
+        return trace;
+    }
+
+    private String contents(WireTrace trace) {
+        return trace.dump().stream().map(WireTrace.Entry::getContent).collect(Collectors.joining());
+    }
+}